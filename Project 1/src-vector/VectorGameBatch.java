@@ -0,0 +1,128 @@
+/** VECTORGAMEBATCH CLASS
+ * @author Afonso Brás Sousa
+ * Vectorized GameBatch engine (Vector API): each instruction advances as many games as the
+ * vector has lanes; branches become masks and the tile lookup becomes a gather
+ * Gives exactly the same results as the scalar engine with the same seed
+ * Needs the incubator module (javac/java --add-modules jdk.incubator.vector), so it's kept in its
+ * own source root, left out of the default build; GameBatch.create finds it when it's compiled
+ */
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorGameBatch extends GameBatch {
+    //Constants
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    //Instance variables
+    private final int[] gatherIndexes; //lane positions for the tile gather (reused)
+
+    /** Constructor
+     * @param board - the board (only its tiles are used)
+     * @param games - number of games played at the same time, rounded up to whole vectors
+     *              - pre: >0
+     * @param seed - seed of the dice
+     */
+    public VectorGameBatch(Board board, int games, long seed) {
+        super(board, SPECIES.loopBound(games + SPECIES.length() - 1), seed);
+        gatherIndexes = new int[SPECIES.length()];
+    }
+
+    //Methods
+    @Override
+    public void playTurn() {
+        for (int g=0; g<games; g+=SPECIES.length()) {
+            playTurn(g);
+        }
+        turns += games;
+    }
+
+    /**
+     * Processes one turn of the games in one vector
+     * @param g - the first game of the vector
+     */
+    private void playTurn(int g) {
+        //Dice: xorshift32 in every lane, then 16 bits per dice
+        IntVector state = IntVector.fromArray(SPECIES, dice, g);
+        state = state.lanewise(VectorOperators.XOR, state.lanewise(VectorOperators.LSHL, 13));
+        state = state.lanewise(VectorOperators.XOR, state.lanewise(VectorOperators.LSHR, 17));
+        state = state.lanewise(VectorOperators.XOR, state.lanewise(VectorOperators.LSHL, 5));
+        state.intoArray(dice, g);
+        IntVector dice1 = state.lanewise(VectorOperators.LSHR, 16).mul(6)
+                .lanewise(VectorOperators.LSHR, 16);
+        IntVector dice2 = state.and(0xFFFF).mul(6).lanewise(VectorOperators.LSHR, 16);
+        IntVector diceResult = dice1.add(dice2).add(2);
+
+        //Current player's position and penalty
+        IntVector player = IntVector.fromArray(SPECIES, current, g);
+        IntVector position = IntVector.zero(SPECIES);
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            position = position.blend(IntVector.fromArray(SPECIES, positions[p], g), player.eq(p));
+        }
+
+        //Movement: clamp, gather the tile types, then fall/bird/penalty as masks
+        IntVector nextPosition = position.add(diceResult).min(lastTile);
+        nextPosition.intoArray(gatherIndexes, 0);
+        IntVector type = IntVector.fromArray(SPECIES, tiles, 0, gatherIndexes, 0);
+        IntVector fallen = position.sub(diceResult).max(0);
+        IntVector jumped = nextPosition.add(Board.BIRD_JUMP).min(lastTile);
+        nextPosition = nextPosition.blend(fallen, type.eq(TILE_FALL))
+                .blend(jumped, type.eq(TILE_BIRD));
+        VectorMask<Integer> penalized = type.eq(TILE_PENALTY);
+
+        //Finished games
+        VectorMask<Integer> won = nextPosition.eq(lastTile);
+        finishedGames += won.trueCount();
+
+        //Writes back the moved players, resetting the finished games
+        IntVector[] playerPenalties = new IntVector[Board.NUMBER_OF_PLAYERS];
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            VectorMask<Integer> isPlayer = player.eq(p);
+            wins[p] += won.and(isPlayer).trueCount();
+            IntVector playerPosition = IntVector.fromArray(SPECIES, positions[p], g)
+                    .blend(nextPosition, isPlayer).blend(0, won);
+            playerPosition.intoArray(positions[p], g);
+            playerPenalties[p] = IntVector.fromArray(SPECIES, penalties[p], g)
+                    .blend(Board.PENALTY_TURNS, penalized.and(isPlayer)).blend(0, won);
+        }
+
+        //Passes the turn, skipping penalized players (all lanes together, until none is left)
+        IntVector next = nextTurn(player).blend(0, won);
+        VectorMask<Integer> skip = penaltyOf(playerPenalties, next).compare(VectorOperators.GT, 0);
+        while (skip.anyTrue()) {
+            for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+                playerPenalties[p] = playerPenalties[p].sub(1, skip.and(next.eq(p)));
+            }
+            next = next.blend(nextTurn(next), skip);
+            skip = penaltyOf(playerPenalties, next).compare(VectorOperators.GT, 0);
+        }
+        next.intoArray(current, g);
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            playerPenalties[p].intoArray(penalties[p], g);
+        }
+    }
+
+    /**
+     * @param player - a player index in every lane
+     * @return the next player index in every lane
+     */
+    private static IntVector nextTurn(IntVector player) {
+        IntVector next = player.add(1);
+        return next.blend(0, next.eq(Board.NUMBER_OF_PLAYERS));
+    }
+
+    /**
+     * @param playerPenalties - penalties of each player slot
+     * @param player - a player index in every lane
+     * @return the penalty of the given player in every lane
+     */
+    private static IntVector penaltyOf(IntVector[] playerPenalties, IntVector player) {
+        IntVector penalty = IntVector.zero(SPECIES);
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            penalty = penalty.blend(playerPenalties[p], player.eq(p));
+        }
+        return penalty;
+    }
+}
@@ -0,0 +1,121 @@
+/** BATCHBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * Compares games per second of the per-object Board, the scalar GameBatch engine and the
+ * vectorized engine (if available), after checking that all of them give the same results
+ * Usage: BatchBenchmark [games in lockstep] [seconds]
+ * The vectorized engine is only measured if it was compiled (src-vector) and the Vector API module
+ * is present:
+ *   java --add-modules jdk.incubator.vector -cp [src and src-vector classes] BatchBenchmark
+ */
+
+public class BatchBenchmark {
+    //Constants
+    private static final String PLAYER_ORDER = "ABC";
+    private static final int TILE_NUMBER = 90;
+    private static final int[] PENALTY_TILES = {5, 23, 47, 66, 80};
+    private static final int[] FALL_TILES = {12, 39, 58, 77, 85};
+    private static final long SEED = 1;
+    private static final int CHECK_TURNS = 20_000;
+
+    /** MAIN
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        Board board = newBoard();
+
+        //Same results: a 1-game batch against Board, then the chosen engine against the scalar one
+        check(board);
+        GameBatch engine = GameBatch.create(board, games, SEED);
+        GameBatch scalar = new GameBatch(board, engine.getGames(), SEED);
+        for (int i=0; i<CHECK_TURNS; i++) {engine.playTurn(); scalar.playTurn();}
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            if (engine.getWins(p) != scalar.getWins(p)) {
+                throw new IllegalStateException("Engines differ for player " + p);
+            }
+        }
+        System.out.printf("Check OK (%s, %d games in lockstep)\n",
+                engine.getClass().getName(), engine.getGames());
+
+        //Warm-up, then measurement
+        for (int run=0; run<2; run++) {
+            double boardRate = boardGamesPerSecond(seconds);
+            double scalarRate = batchGamesPerSecond(new GameBatch(board, games, SEED), seconds);
+            double engineRate = engine.getClass() != GameBatch.class //vectorized
+                    ? batchGamesPerSecond(GameBatch.create(board, games, SEED), seconds) : 0;
+            if (run == 0) {continue;}
+            System.out.printf("Board: %.0f games/s\n", boardRate);
+            System.out.printf("Scalar batch: %.0f games/s (%.2fx)\n", scalarRate,
+                    scalarRate / boardRate);
+            if (engineRate > 0) {
+                System.out.printf("Vector batch: %.0f games/s (%.2fx)\n", engineRate,
+                        engineRate / boardRate);
+            }
+        }
+    }
+
+    /**
+     * @return a new game on the benchmark board
+     */
+    private static Board newBoard() {
+        return new Board(PLAYER_ORDER, TILE_NUMBER, PENALTY_TILES, FALL_TILES);
+    }
+
+    /**
+     * Plays games one at a time with Board and with a 1-game scalar batch, using the same dice,
+     * and checks that the same players win
+     * @param board - the benchmark board
+     */
+    private static void check(Board board) {
+        GameBatch batch = new GameBatch(board, 1, SEED);
+        int state = batch.dice[0];
+        Board game = newBoard();
+        long[] wins = new long[Board.NUMBER_OF_PLAYERS];
+        for (int i=0; i<CHECK_TURNS; i++) {
+            state = GameBatch.nextState(state);
+            game.processNextTurn(GameBatch.diceSum(state));
+            if (game.isGameOver()) {
+                wins[game.searchPlayer(game.getWinner())]++;
+                game = newBoard();
+            }
+            batch.playTurn();
+        }
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            if (wins[p] != batch.getWins(p)) {
+                throw new IllegalStateException("GameBatch differs from Board for player " + p);
+            }
+        }
+    }
+
+    /**
+     * Plays games one at a time with Board objects
+     * @param seconds - how long to play
+     * @return finished games per second
+     */
+    private static double boardGamesPerSecond(double seconds) {
+        long start = System.nanoTime(), end = start + (long) (seconds * 1e9);
+        long games = 0;
+        int state = 1;
+        Board game = newBoard();
+        while (System.nanoTime() < end) {
+            for (int i=0; i<1000; i++) {
+                state = GameBatch.nextState(state);
+                game.processNextTurn(GameBatch.diceSum(state));
+                if (game.isGameOver()) {games++; game = newBoard();}
+            }
+        }
+        return games * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * Plays games in lockstep with a batch engine
+     * @param batch - the engine
+     * @param seconds - how long to play
+     * @return finished games per second
+     */
+    private static double batchGamesPerSecond(GameBatch batch, double seconds) {
+        long start = System.nanoTime(), end = start + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {batch.playTurn();}
+        return batch.getFinishedGames() * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -4,28 +4,42 @@
  * Defines the format of the board, how many tiles and which are "special"
  * Defines 3 players and their playing order
  * Updates the position of each player after each turn
+ * Thread safety: a single thread may process turns while any number of threads read the state;
+ * readers never lock (optimistic reads, retried if a turn was processed meanwhile), so they never
+ * block the writer
  */
 
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
 public class Board {
     //Constants
-    private static final int NUMBER_OF_PLAYERS = 3;
+    //The tile constants are public so that other classes can read the board (see getSquareType)
+    public static final int NUMBER_OF_PLAYERS = 3;
     private static final int BIRD_TILE_MULT = 9; //defines a bird tile every N tiles
-    private static final char BIRD_CHAR = 'B'; //bird character
-    private static final char PENALTY_CHAR = 'P'; //penalty character
-    private static final char FALL_CHAR = 'F'; //fall character
+    public static final int BIRD_JUMP = 9; //how many tiles do players advance on a bird tile
+    public static final int PENALTY_TURNS = 2; //how many turns are skipped on a penalty tile
+    public static final char BIRD_CHAR = 'B'; //bird character
+    public static final char PENALTY_CHAR = 'P'; //penalty character
+    public static final char FALL_CHAR = 'F'; //fall character
+    private static final int DENSE_TILE_LIMIT = 1 << 16; //larger boards are kept sparse
 
     //Instance variables
-    private final int tileNumber; //how many tiles //Pre: >=10 && <=150
-    private final char[] boardTiles; //tile array, saves each tile's "type"
+    private final int tileNumber; //how many tiles //Pre: >=10 (huge boards are kept sparse)
+    private final char[] boardTiles; //tile array, saves each tile's "type" (null if sparse)
+    private final SparseBoard sparseTiles; //tile types of huge boards (null if dense)
     private final Player[] players; //players array in order
     private int nextPlayer; //defines who plays next
+    private int winner; //index of the winner, -1 while the game isn't over
+    private final StampedLock lock; //write-locked while a turn is processed (readers never lock)
 
     /** Constructor
      * Defines the inicial board state
      * @param playerOrder - the order in which each player plays
      *   pre: 3 capital unique letters
      * @param tileNumber - the number of tiles of the board
-     *   pre: >=10 && <=150
+     *   pre: >=10 (boards with more than DENSE_TILE_LIMIT tiles don't get a tile array)
      * @param penaltyTiles - which tiles are marked as "penalty"
      *   pre: >=1 && <=tileNumber-2 && size>=1 && size<=(tileNumber/3)
      * @param fallTiles - which tiles are marked as "fall"
@@ -34,17 +48,26 @@ public class Board {
     public Board(String playerOrder, int tileNumber, int[] penaltyTiles, int[] fallTiles) {
         this.tileNumber = tileNumber;
 
-        //Initializes the board
-        boardTiles = new char[tileNumber];
+        if (tileNumber > DENSE_TILE_LIMIT) {
+            //Huge board: memory proportional to the number of special tiles
+            boardTiles = null;
+            sparseTiles = new SparseBoard(tileNumber, BIRD_TILE_MULT, penaltyTiles, fallTiles);
+        } else {
+            //Initializes the board
+            boardTiles = new char[tileNumber];
+            sparseTiles = null;
 
-        //Populates the board with "special" tiles
-        populateBoard(BIRD_CHAR, birdTiles());
-        populateBoard(PENALTY_CHAR, penaltyTiles);
-        populateBoard(FALL_CHAR, fallTiles);
+            //Populates the board with "special" tiles
+            populateBoard(BIRD_CHAR, birdTiles());
+            populateBoard(PENALTY_CHAR, penaltyTiles);
+            populateBoard(FALL_CHAR, fallTiles);
+        }
 
         //Populates the player list in order of play and sets the first player to start
         players = populatePlayers(playerOrder);
         nextPlayer = 0;
+        winner = -1;
+        lock = new StampedLock();
     }
 
     /**
@@ -108,7 +131,8 @@ public class Board {
      * @return color of the next player to roll the dice
      */
     public char getNextPlayer() {
-        return players[nextPlayer].getColor();
+        int i = readInt(() -> nextPlayer); //only the index is read optimistically
+        return players[i].getColor();
     }
 
     /** Square command
@@ -116,7 +140,7 @@ public class Board {
      * @return position of the requested player
      */
     public int getPlayerSquare(int index) {
-        return players[index].getPosition();
+        return readInt(() -> players[index].getPosition());
     }
 
     /** Status command
@@ -124,7 +148,7 @@ public class Board {
      * @return boolean - can the requested player roll the dice when it's their turn?
      */
     public boolean getPlayerStatus(int index) {
-        return players[index].canPlay();
+        return readBoolean(() -> players[index].canPlay());
     }
 
     /** Dice command
@@ -133,6 +157,31 @@ public class Board {
      *   pre: diceResult == valid integer between 2 and 12
      */
     public void processNextTurn(int diceResult) {
+        long stamp = lock.writeLock(); //only waits for other writers (pre: there are none)
+        try {
+            applyTurn(diceResult);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Rolls the dice of a dice source and processes one turn
+     * pre: !isGameOver()
+     * @param dice - where the dice come from
+     * @return false if the source had no rolls left (no turn was processed)
+     */
+    public boolean playNextTurn(DiceSource dice) {
+        if (!dice.next()) {return false;}
+        processNextTurn(dice.getDice1() + dice.getDice2());
+        return true;
+    }
+
+    /**
+     * Processes one turn (see processNextTurn)
+     * @param diceResult - sum of the dice values
+     */
+    private void applyTurn(int diceResult) {
         Player player = players[nextPlayer];
         int position = player.getPosition();
 
@@ -145,32 +194,44 @@ public class Board {
                 nextPosition = Math.max(position - diceResult, 0); //no out-of-bounds
                 break;
             case BIRD_CHAR:
-                nextPosition = Math.min(nextPosition + 9, tileNumber-1); //no out-of-bounds
+                nextPosition = Math.min(nextPosition + BIRD_JUMP, tileNumber-1); //no out-of-bounds
                 break;
             case PENALTY_CHAR:
-                player.applyPenalty(2);
+                player.applyPenalty(PENALTY_TURNS);
                 break;
         }
 
         player.movePlayer(nextPosition);
+        if (nextPosition == tileNumber-1) { //the winner is saved instead of searched
+            winner = Math.max(winner, nextPlayer); //Pre: only 1 winner allowed
+        }
 
         passTurn();
     }
 
     /**
      * @return Returns the "type" of the requested square
+     * (BIRD_CHAR, PENALTY_CHAR, FALL_CHAR or 0 for normal squares)
      * @param square - index of the requested square
      */
-    private char getSquareType(int square) {
+    public char getSquareType(int square) {
+        if (boardTiles == null) {return sparseTiles.getSquareType(square);}
         return boardTiles[square];
     }
 
+    /**
+     * @return the number of tiles of the board
+     */
+    public int getTileNumber() {
+        return tileNumber;
+    }
+
     /**
      * Passes the turn to the next player
      */
     private void passTurn() {
-        nextPlayer++;
-        if (nextPlayer>=NUMBER_OF_PLAYERS) {nextPlayer=0;}
+        int next = nextPlayer + 1;
+        nextPlayer = next >= NUMBER_OF_PLAYERS ? 0 : next; //one store, always a valid index
         checkTurnSkip(); //checks if next player has a penalty
     }
 
@@ -186,31 +247,47 @@ public class Board {
         }
     }
 
-    /**
-     * Searches for a winner
-     * @return index of the winner in the players array
-     * @return -1 if no winner found
-     */
-    private int searchForWinner() { //Pre: only 1 winner allowed
-        int i=NUMBER_OF_PLAYERS-1;
-        while (i>=0 && players[i].getPosition()+1!=tileNumber) { //position N == square N+1
-            i--;
-        }
-        return i; //if not found ==> i == -1;
-    }
-
     /**
      * @return Returns the winning player's color
      * pre: isGameOver == TRUE
      */
     public char getWinner() {
-        return players[searchForWinner()].getColor();
+        return players[readInt(() -> winner)].getColor();
     }
 
     /**
      * @return boolean - is the game over?
      */
     public boolean isGameOver() {
-        return (searchForWinner() != -1);
+        return readBoolean(() -> winner != -1);
+    }
+
+    /**
+     * Reads part of the state without locking (optimistic read)
+     * @param read - reads the value; may run while a turn is processed, so it only reads and
+     *   never indexes with a value that a turn may be changing (see getNextPlayer)
+     * @return the value read while no turn was processed (read again until then)
+     */
+    private int readInt(IntSupplier read) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            int value = read.getAsInt();
+            if (lock.validate(stamp)) {return value;}
+            Thread.onSpinWait(); //a turn is being processed, reads again
+        }
+    }
+
+    /**
+     * Reads part of the state without locking (see readInt)
+     * @param read - reads the value; may run while a turn is processed, so it only reads
+     * @return the value read while no turn was processed (read again until then)
+     */
+    private boolean readBoolean(BooleanSupplier read) {
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            boolean value = read.getAsBoolean();
+            if (lock.validate(stamp)) {return value;}
+            Thread.onSpinWait(); //a turn is being processed, reads again
+        }
     }
 }
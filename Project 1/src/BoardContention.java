@@ -0,0 +1,116 @@
+/** BOARDCONTENTION CLASS
+ * @author Afonso Brás Sousa
+ * Contention benchmark: one thread processes turns while N threads serve square, status and
+ * player queries on the same board
+ * Shows that readers don't slow the writer down (they never lock) and how many queries they serve
+ * A last run uses a board full of penalty tiles, so readers also run while turns are skipped
+ * Usage: BoardContention [max readers] [seconds per run]
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoardContention {
+    //Constants
+    private static final String PLAYER_ORDER = "ABC";
+    private static final int TILE_NUMBER = 150;
+    private static final int[] PENALTY_TILES = {5, 23, 47, 80, 101, 133};
+    private static final int[] FALL_TILES = {12, 39, 66, 95, 120, 140};
+    private static final int[] SKIP_PENALTY_TILES = penaltyEvery(3); //tileNumber/3 penalty tiles
+
+    //Instance variables
+    private static volatile Board board; //current game, replaced by the writer when it's over
+    private static volatile boolean running;
+    private static long sink; //results of the queries, so the JIT can't drop them (main thread)
+
+    /** MAIN
+     * @throws InterruptedException - if the benchmark is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxReaders = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+
+        run(0, seconds, PENALTY_TILES); //warm-up
+        System.out.printf("%-8s %16s %18s%n", "readers", "writer turns/s", "reader queries/s");
+        for (int readers=0; readers<=maxReaders; readers = readers == 0 ? 1 : readers*2) {
+            double[] rates = run(readers, seconds, PENALTY_TILES);
+            System.out.printf("%-8d %16.0f %18.0f%n", readers, rates[0], rates[1]);
+        }
+        double[] rates = run(Math.max(maxReaders, 1), seconds, SKIP_PENALTY_TILES);
+        System.out.printf("%-8s %16.0f %18.0f%n", "skips", rates[0], rates[1]);
+    }
+
+    /**
+     * Runs the writer and N readers for a while
+     * @param readers - number of reader threads
+     * @param seconds - how long the run takes
+     * @param penaltyTiles - penalty tiles of the board
+     * @return turns per second of the writer and queries per second of all readers together
+     */
+    private static double[] run(int readers, double seconds, int[] penaltyTiles)
+            throws InterruptedException {
+        board = newBoard(penaltyTiles);
+        running = true;
+        AtomicLong turns = new AtomicLong();
+        AtomicLong queries = new AtomicLong();
+
+        Thread writer = new Thread(() -> {
+            RandomDice dice = new RandomDice(1);
+            long count = 0;
+            while (running) {
+                Board current = board;
+                if (current.isGameOver()) {board = newBoard(penaltyTiles); continue;}
+                current.playNextTurn(dice);
+                count++;
+            }
+            turns.set(count);
+        });
+        Thread[] readerThreads = new Thread[readers];
+        long[] results = new long[readers]; //results[i] == result of reader i, written when it ends
+        for (int i=0; i<readers; i++) {
+            int reader = i;
+            readerThreads[i] = new Thread(() -> {
+                long count = 0, result = 0;
+                while (running) {
+                    Board current = board;
+                    int index = (int) (count % Board.NUMBER_OF_PLAYERS);
+                    result += current.getPlayerSquare(index);
+                    result += current.getPlayerStatus(index) ? 1 : 0;
+                    result += current.isGameOver() ? 0 : current.getNextPlayer();
+                    count += 3;
+                }
+                queries.addAndGet(count);
+                results[reader] = result;
+            });
+        }
+
+        long start = System.nanoTime();
+        writer.start();
+        for (Thread reader : readerThreads) {reader.start();}
+        Thread.sleep((long) (seconds * 1000));
+        running = false;
+        writer.join();
+        for (Thread reader : readerThreads) {reader.join();}
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        for (long result : results) {sink += result;} //visible after join
+        return new double[] {turns.get() / elapsed, queries.get() / elapsed};
+    }
+
+    /**
+     * @param penaltyTiles - penalty tiles of the board
+     * @return a new game on the benchmark board
+     */
+    private static Board newBoard(int[] penaltyTiles) {
+        return new Board(PLAYER_ORDER, TILE_NUMBER, penaltyTiles, FALL_TILES);
+    }
+
+    /**
+     * @param step - distance between penalty tiles
+     * @return penalty tiles 1, 1+step, 1+2*step... up to tile C-2 (step 3 misses the bird and
+     *   fall tiles)
+     */
+    private static int[] penaltyEvery(int step) {
+        int[] tiles = new int[(TILE_NUMBER - 3) / step + 1];
+        for (int i=0; i<tiles.length; i++) {tiles[i] = 1 + i*step;}
+        return tiles;
+    }
+}
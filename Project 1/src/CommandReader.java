@@ -0,0 +1,232 @@
+/** COMMANDREADER CLASS
+ * @author Afonso Brás Sousa
+ * Reads the user's commands byte by byte from a reusable buffer
+ * Replaces Scanner in the command loop: commands are matched in place and dice are decoded directly
+ * into integers, so reading a command doesn't create any objects
+ * Follows the Scanner rules used by the Main class: a command is the next token (whitespace
+ * separated), its argument is the rest of the line, including the space after the command
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class CommandReader {
+    //Constants
+    private static final int BUFFER_SIZE = 1 << 16; //bytes read from the input at once
+    private static final int MAX_COMMAND = 16; //longest command that can be matched
+    private static final int ARG_SIZE = 64; //initial argument capacity (grows if needed)
+
+    //Instance variables
+    private final InputStream in;
+    private final byte[] buffer; //input bytes
+    private int position; //next unread byte in the buffer
+    private int limit; //number of valid bytes in the buffer
+    private final byte[] command; //bytes of the last command (up to MAX_COMMAND)
+    private int commandLength; //real length of the last command
+    private byte[] arg; //bytes of the last argument
+    private int argLength;
+    private int dice1; //last decoded dice
+    private int dice2;
+
+    /** Constructor
+     * @param in - the user input
+     */
+    public CommandReader(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.command = new byte[MAX_COMMAND];
+        this.arg = new byte[ARG_SIZE];
+    }
+
+    //Methods
+    /**
+     * @return the next byte without consuming it, -1 at the end of the input
+     */
+    private int peek() {
+        if (position == limit) {
+            try {
+                limit = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {limit = 0; return -1;}
+        }
+        return buffer[position];
+    }
+
+    /**
+     * @param b - a byte
+     * @return true if Scanner treats the byte as a token delimiter
+     */
+    private static boolean isDelimiter(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Skips delimiters (including line breaks)
+     * @return false if the end of the input was reached
+     */
+    private boolean skipDelimiters() {
+        int b = peek();
+        while (b != -1 && isDelimiter(b)) {position++; b = peek();}
+        return b != -1;
+    }
+
+    /**
+     * Reads the next command and its argument
+     * @return false if there are no commands left
+     */
+    public boolean next() {
+        if (!skipDelimiters()) {return false;}
+
+        //Command: bytes until the next delimiter
+        commandLength = 0;
+        int b = peek();
+        while (b != -1 && !isDelimiter(b)) {
+            if (commandLength < MAX_COMMAND) {command[commandLength] = (byte) b;}
+            commandLength++;
+            position++;
+            b = peek();
+        }
+
+        //Argument: rest of the line
+        argLength = 0;
+        while (b != -1 && b != '\n' && b != '\r') {
+            if (argLength == arg.length) {arg = Arrays.copyOf(arg, argLength * 2);}
+            arg[argLength++] = (byte) b;
+            position++;
+            b = peek();
+        }
+        skipLineBreak(b);
+        return true;
+    }
+
+    /**
+     * Consumes a line break ("\n", "\r" or "\r\n")
+     * @param b - the current byte
+     */
+    private void skipLineBreak(int b) {
+        if (b == '\r') {
+            position++;
+            if (peek() == '\n') {position++;}
+        } else if (b == '\n') {
+            position++;
+        }
+    }
+
+    /**
+     * Compares the last command with a command name
+     * @param name - the command name
+     * @return true if the last command is the named command
+     */
+    public boolean isCommand(String name) {
+        if (commandLength != name.length()) {return false;}
+        for (int i=0; i<commandLength; i++) {
+            if (command[i] != name.charAt(i)) {return false;}
+        }
+        return true;
+    }
+
+    /**
+     * @return the length of the last argument, in bytes
+     */
+    public int getArgLength() {
+        return argLength;
+    }
+
+    /**
+     * @param i - index of the requested character
+     *          - pre: >=0 && <getArgLength()
+     * @return the requested character of the last argument
+     */
+    public char getArgChar(int i) {
+        return (char) (arg[i] & 0xFF);
+    }
+
+    /**
+     * Decodes the last argument as dice values, the same way Main used to split it:
+     * the argument is split at each space, the first part (before the first space) is ignored
+     * and the remaining parts are integers; only the first two are used
+     * pre: argument == "space + integer1 + space + integer2"
+     * @throws NumberFormatException - if the argument isn't in that format
+     */
+    public void decodeDice() {
+        int end = argLength;
+        while (end > 0 && arg[end-1] == ' ') {end--;} //trailing empty parts are dropped
+        int i = 0;
+        while (i < end && arg[i] != ' ') {i++;} //ignores the first part
+        i++;
+        int count = 0;
+        while (i <= end) {
+            boolean negative = false;
+            if (i < end && (arg[i] == '-' || arg[i] == '+')) {negative = arg[i] == '-'; i++;}
+            int start = i, value = 0;
+            while (i < end && arg[i] >= '0' && arg[i] <= '9') {
+                value = value*10 + (arg[i++] - '0');
+            }
+            if (i == start || (i < end && arg[i] != ' ')) {
+                throw new NumberFormatException("Invalid dice argument");
+            }
+            if (negative) {value = -value;}
+            if (count == 0) {dice1 = value;} else if (count == 1) {dice2 = value;}
+            count++;
+            i++; //skips the space
+        }
+        if (count < 2) {throw new NumberFormatException("Invalid dice argument");}
+    }
+
+    /**
+     * @return the first decoded dice value (see decodeDice)
+     */
+    public int getDice1() {
+        return dice1;
+    }
+
+    /**
+     * @return the second decoded dice value (see decodeDice)
+     */
+    public int getDice2() {
+        return dice2;
+    }
+
+    /**
+     * Reads the next token (used for the input header, not for commands)
+     * @return the token
+     * @throws NoSuchElementException - if there are no tokens left
+     */
+    public String nextToken() {
+        if (!skipDelimiters()) {throw new NoSuchElementException();}
+        StringBuilder token = new StringBuilder();
+        int b = peek();
+        while (b != -1 && !isDelimiter(b)) {
+            token.append((char) (b & 0xFF));
+            position++;
+            b = peek();
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads the next token as an integer (used for the input header, not for commands)
+     * @return the integer
+     * @throws NumberFormatException - if the token isn't an integer
+     */
+    public int nextInt() {
+        return Integer.parseInt(nextToken());
+    }
+
+    /**
+     * Skips the rest of the current line
+     */
+    public void nextLine() {
+        int b = peek();
+        while (b != -1 && b != '\n' && b != '\r') {position++; b = peek();}
+        skipLineBreak(b);
+    }
+}
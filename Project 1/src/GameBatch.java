@@ -0,0 +1,171 @@
+/** GAMEBATCH CLASS
+ * @author Afonso Brás Sousa
+ * Plays many independent games on the same board in lockstep: every call to playTurn processes
+ * one turn of every game, with the same rules as Board.processNextTurn
+ * The state of the games is kept in lane-aligned int arrays (one array per player slot), so that
+ * a vectorized engine can process many games with each instruction (see VectorGameBatch)
+ * Finished games are retired and a new game starts in their place
+ * This class is the scalar engine, used when the Vector API isn't available
+ */
+
+import java.util.SplittableRandom;
+
+public class GameBatch {
+    //Constants
+    //Tile codes of the lookup table (the Board characters, as integers that can be gathered)
+    protected static final int TILE_NORMAL = 0;
+    protected static final int TILE_BIRD = 1;
+    protected static final int TILE_PENALTY = 2;
+    protected static final int TILE_FALL = 3;
+    private static final String VECTOR_ENGINE = "VectorGameBatch";
+
+    //Instance variables
+    protected final int[] tiles; //tiles[i] == code of tile i
+    protected final int lastTile;
+    protected final int games; //number of games played at the same time
+    protected final int[][] positions; //positions[p][g] == position of player p in game g
+    protected final int[][] penalties; //penalties[p][g] == penalty of player p in game g
+    protected final int[] current; //current[g] == player who plays next in game g
+    protected final int[] dice; //dice[g] == state of the dice generator of game g (xorshift)
+    protected long finishedGames;
+    protected final long[] wins; //wins[p] == games won by player p
+    protected long turns;
+
+    /** Constructor
+     * @param board - the board (only its tiles are used)
+     * @param games - number of games played at the same time
+     *              - pre: >0
+     * @param seed - seed of the dice
+     */
+    public GameBatch(Board board, int games, long seed) {
+        lastTile = board.getTileNumber()-1;
+        tiles = new int[board.getTileNumber()];
+        for (int i=0; i<tiles.length; i++) {
+            switch (board.getSquareType(i)) {
+                case Board.BIRD_CHAR: tiles[i] = TILE_BIRD; break;
+                case Board.PENALTY_CHAR: tiles[i] = TILE_PENALTY; break;
+                case Board.FALL_CHAR: tiles[i] = TILE_FALL; break;
+                default: tiles[i] = TILE_NORMAL;
+            }
+        }
+        this.games = games;
+        positions = new int[Board.NUMBER_OF_PLAYERS][games];
+        penalties = new int[Board.NUMBER_OF_PLAYERS][games];
+        current = new int[games];
+        dice = new int[games];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int g=0; g<games; g++) {dice[g] = random.nextInt() | 1;} //xorshift state can't be 0
+        wins = new long[Board.NUMBER_OF_PLAYERS];
+    }
+
+    /**
+     * Creates the fastest engine available: vectorized if VectorGameBatch was compiled (it's in its
+     * own source root, src-vector) and the Vector API module is present
+     * (java --add-modules jdk.incubator.vector), scalar otherwise
+     * @param board - the board
+     * @param games - number of games played at the same time (rounded up to whole vectors)
+     * @param seed - seed of the dice
+     * @return the engine
+     */
+    public static GameBatch create(Board board, int games, long seed) {
+        try {
+            return (GameBatch) Class.forName(VECTOR_ENGINE)
+                    .getConstructor(Board.class, int.class, long.class)
+                    .newInstance(board, games, seed);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new GameBatch(board, games, seed);
+        }
+    }
+
+    //Methods
+    /**
+     * Rolls both dice of a game, from the 32 bits of its xorshift generator
+     * (each dice uses 16 bits: value = bits*6 / 2^16 + 1)
+     * @param state - the generator's new state
+     * @return the sum of the dice
+     */
+    protected static int diceSum(int state) {
+        return (((state >>> 16) * 6) >>> 16) + (((state & 0xFFFF) * 6) >>> 16) + 2;
+    }
+
+    /**
+     * @param state - the generator's state
+     * @return the next state (xorshift32)
+     */
+    protected static int nextState(int state) {
+        state ^= state << 13;
+        state ^= state >>> 17;
+        state ^= state << 5;
+        return state;
+    }
+
+    /**
+     * Processes one turn of every game
+     */
+    public void playTurn() {
+        for (int g=0; g<games; g++) {
+            dice[g] = nextState(dice[g]);
+            int diceResult = diceSum(dice[g]);
+            int player = current[g];
+            int position = positions[player][g];
+
+            //Same movement rules as Board.processNextTurn
+            int nextPosition = Math.min(position + diceResult, lastTile);
+            switch (tiles[nextPosition]) {
+                case TILE_FALL: nextPosition = Math.max(position - diceResult, 0); break;
+                case TILE_BIRD:
+                    nextPosition = Math.min(nextPosition + Board.BIRD_JUMP, lastTile);
+                    break;
+                case TILE_PENALTY: penalties[player][g] = Board.PENALTY_TURNS; break;
+            }
+            positions[player][g] = nextPosition;
+
+            if (nextPosition == lastTile) { //retires the game and starts a new one
+                finishedGames++;
+                wins[player]++;
+                for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+                    positions[p][g] = 0;
+                    penalties[p][g] = 0;
+                }
+                current[g] = 0;
+            } else { //passes the turn, skipping penalized players
+                int next = (player + 1) % Board.NUMBER_OF_PLAYERS;
+                while (penalties[next][g] > 0) {
+                    penalties[next][g]--;
+                    next = (next + 1) % Board.NUMBER_OF_PLAYERS;
+                }
+                current[g] = next;
+            }
+        }
+        turns += games;
+    }
+
+    /**
+     * @return number of games played at the same time
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * @return number of finished games
+     */
+    public long getFinishedGames() {
+        return finishedGames;
+    }
+
+    /**
+     * @param player - index of a player in order of play
+     * @return games won by the player
+     */
+    public long getWins(int player) {
+        return wins[player];
+    }
+
+    /**
+     * @return number of processed turns (over all games)
+     */
+    public long getTurns() {
+        return turns;
+    }
+}
@@ -4,7 +4,6 @@
  * Receives player input, processes commands and generates program output
 */
 
-import java.util.Scanner;
 
 public class Main {
     //Constants
@@ -19,10 +18,10 @@ public class Main {
      */
     public static void main(String[] args) {
         //Input start
-        Scanner in = new Scanner(System.in);
+        CommandReader in = new CommandReader(System.in);
 
         //Processes the player order
-        String playerOrder = in.next(); in.nextLine(); //Pre: 3 different capital letters
+        String playerOrder = in.nextToken(); in.nextLine(); //Pre: 3 different capital letters
 
         //Receives the number of tiles
         int tileNumber = in.nextInt(); in.nextLine(); //Pre: >=10 && <=150
@@ -36,18 +35,17 @@ public class Main {
 
         //Processes commands
         executeCmdLoop(board, in);
-        in.close();
     }
 
     /* Methods */
 
     /**
      * Receives which tiles are "special" tiles and saves them into an array
-     * @param in - Scanner input
+     * @param in - user input reader
      * pre: integer (array size) + \n + integers separated by space
      * @return tileArray - array with each integer
      */
-    private static int[] saveTileArray(Scanner in) {
+    static int[] saveTileArray(CommandReader in) {
         int size = in.nextInt(); in.nextLine();
         int[] tileArray = new int[size];
         for (int i=0; i<size; i++) {
@@ -61,45 +59,29 @@ public class Main {
      * Interprets and executes commands while cmd !=exit
      * Prints output
      * @param board - the game board
-     * @param in - Scanner input
+     * @param in - user input reader
      */
-    private static void executeCmdLoop(Board board, Scanner in) {
-        String cmd, arg;
-        do {
-            cmd = in.next(); //command
-            arg = in.nextLine(); //argument
-            switch (cmd) {
-                case CMD_PLAYER:
-                    //invalidates the command if there's anything written after "player"
-                    if (!arg.equals("")) {System.out.println("Invalid command");}
-                    else {printNextPlayer(board);}
-                    break;
-                case CMD_SQUARE: printPlayerSquare(board, arg); break;
-                case CMD_STATUS: printPlayerStatus(board, arg); break;
-                case CMD_DICE:
-                    int[] dice = splitArg(arg); //Pre: 2 integers
-                    rollDice(board, dice[0], dice[1]);
-                    break;
-                case CMD_EXIT: printExitStatus(board); break;
-                default:
-                    System.out.println("Invalid command");
+    private static void executeCmdLoop(Board board, CommandReader in) {
+        boolean running = true;
+        while (running && in.next()) { //reads the command and its argument
+            if (in.isCommand(CMD_PLAYER)) {
+                //invalidates the command if there's anything written after "player"
+                if (in.getArgLength()!=0) {System.out.println("Invalid command");}
+                else {printNextPlayer(board);}
+            } else if (in.isCommand(CMD_SQUARE)) {
+                printPlayerSquare(board, in);
+            } else if (in.isCommand(CMD_STATUS)) {
+                printPlayerStatus(board, in);
+            } else if (in.isCommand(CMD_DICE)) {
+                in.decodeDice(); //Pre: 2 integers
+                rollDice(board, in.getDice1(), in.getDice2());
+            } else if (in.isCommand(CMD_EXIT)) {
+                printExitStatus(board);
+                running = false;
+            } else {
+                System.out.println("Invalid command");
             }
-        } while (!cmd.equals(CMD_EXIT));
-    }
-
-    /**
-     * Splits the dice command argument into 2 integers
-     * @param arg - the argument after the "dice" command
-     * pre: arg == "space + integer1 + space + integer2"
-     * @return dice - array with 2 integers (dice values)
-     */
-    private static int[] splitArg(String arg) {
-        String[] diceString = arg.split(" ");
-        int[] dice = new int[diceString.length-1]; //ignores the first element (space)
-        for (int i = 0; i < diceString.length-1; i++) {
-            dice[i] = Integer.valueOf(diceString[i+1]);
         }
-        return dice;
     }
 
     /** Player command
@@ -117,13 +99,13 @@ public class Main {
     /** Square command
      * Prints the position (tile) of the requested player
      * @param board - the game board
-     * @param player - the requested player's color
+     * @param in - user input reader, holding the requested player's color
      */
-    private static void printPlayerSquare(Board board, String player) {
-        if (player.length()!=2) { //space + 1 character, otherwise invalid player
+    private static void printPlayerSquare(Board board, CommandReader in) {
+        if (in.getArgLength()!=2) { //space + 1 character, otherwise invalid player
             System.out.println("Nonexistent player");
         } else {
-            char color = player.charAt(1);
+            char color = in.getArgChar(1);
             int index = board.searchPlayer(color);
             if (index == -1) { //player not found
                 System.out.println("Nonexistent player");
@@ -137,13 +119,13 @@ public class Main {
     /** Status command
      * Prints if the requested player can roll the dice when it's their turn
      * @param board - the game board
-     * @param player - the requested player's color
+     * @param in - user input reader, holding the requested player's color
      */
-    private static void printPlayerStatus(Board board, String player) {
-        if (player.length()!=2) { //space + 1 character, otherwise invalid player
+    private static void printPlayerStatus(Board board, CommandReader in) {
+        if (in.getArgLength()!=2) { //space + 1 character, otherwise invalid player
             System.out.println("Nonexistent player");
         } else {
-            char color = player.charAt(1);
+            char color = in.getArgChar(1);
             int index = board.searchPlayer(color);
             if (index == -1) { //player not found
                 System.out.println("Nonexistent player");
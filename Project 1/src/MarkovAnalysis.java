@@ -0,0 +1,312 @@
+/** MARKOVANALYSIS CLASS
+ * @author Afonso Brás Sousa
+ * Computes the exact expected length of a game and each player's chance of winning it
+ * Given the dice, the rules of the Board class are deterministic, so a game is an absorbing
+ * Markov chain over (positions, penalties, next player). Every state reachable from the start is
+ * listed once with its transitions (one per dice sum), and the expected values are then found
+ * by sparse Gauss-Seidel iteration instead of playing games
+ * Usage: same input as Main (player order, number of tiles, penalty tiles and fall tiles)
+ */
+
+import java.util.Arrays;
+
+public class MarkovAnalysis {
+    //Constants
+    private static final int MAX_TILES = 256; //positions are packed in 8 bits
+    private static final int DICE_OUTCOMES = 36; //2 dice with 6 faces
+    private static final int MIN_SUM = 2;
+    private static final int MAX_SUM = 12;
+    private static final double TOLERANCE = 1e-12; //largest change of a converged iteration
+    private static final int MAX_ITERATIONS = 1_000_000;
+    private static final int EMPTY = -1; //free hash table slot (no state packs to -1)
+    private static final int VALUES = 4; //values per state: expected turns + 3 win probabilities
+
+    //Instance variables
+    private final int tileNumber;
+    private final char[] tiles; //type of each tile (see Board.getSquareType)
+    private final int players = Board.NUMBER_OF_PLAYERS;
+
+    //Reachable states, in the order they were found (state 0 == start of the game)
+    private int[] stateKeys; //packed state
+    private int stateCount;
+    private int[] tableKeys; //open addressing hash table: packed state -> state number
+    private int[] tableValues;
+
+    //Transitions in compressed rows: state i goes to targets[rowStart[i]..rowStart[i+1]-1]
+    private int[] rowStart;
+    private int[] targets;
+    private byte[] counts; //dice outcomes (out of 36) leading to each target
+    private int edgeCount;
+    private byte[] winCounts; //winCounts[i*players+p] == outcomes of state i where p wins
+
+    //Results (for the start of the game)
+    private double expectedTurns;
+    private double[] winProbability; //per player
+    private int iterations;
+
+    /** MAIN
+     * Reads a board in the same format as Main and prints the exact results
+     */
+    public static void main(String[] args) {
+        CommandReader in = new CommandReader(System.in);
+        String playerOrder = in.nextToken(); in.nextLine();
+        int tileNumber = in.nextInt(); in.nextLine();
+        int[] penaltyTiles = Main.saveTileArray(in);
+        int[] fallTiles = Main.saveTileArray(in);
+        Board board = new Board(playerOrder, tileNumber, penaltyTiles, fallTiles);
+
+        long start = System.nanoTime();
+        MarkovAnalysis analysis = new MarkovAnalysis(board);
+        analysis.solve();
+        long time = System.nanoTime() - start;
+
+        System.out.printf("States: %d; transitions: %d; iterations: %d\n",
+                analysis.getStateCount(), analysis.edgeCount, analysis.iterations);
+        System.out.printf("Expected turns: %.9f\n", analysis.getExpectedTurns());
+        for (int p=0; p<Board.NUMBER_OF_PLAYERS; p++) {
+            System.out.printf("%c wins: %.9f\n", playerOrder.charAt(p),
+                    analysis.getWinProbability(p));
+        }
+        System.out.printf("Time: %d ms\n", time / 1_000_000);
+    }
+
+    /** Constructor
+     * Lists every state reachable from the start of the game
+     * @param board - a board (only its tiles are read)
+     *              - pre: board.getTileNumber() <= MAX_TILES
+     */
+    public MarkovAnalysis(Board board) {
+        tileNumber = board.getTileNumber();
+        if (tileNumber > MAX_TILES) {
+            throw new IllegalArgumentException("Boards over " + MAX_TILES + " tiles not supported");
+        }
+        tiles = new char[tileNumber];
+        for (int i=0; i<tileNumber; i++) {tiles[i] = board.getSquareType(i);}
+        buildChain();
+    }
+
+    //Methods
+    /**
+     * Packs a state into an int
+     * Bits: 3 positions (8 bits each), 3 penalties (2 bits each), next player (2 bits)
+     */
+    private static int pack(int[] position, int[] penalty, int next) {
+        return position[0] | position[1] << 8 | position[2] << 16
+                | penalty[0] << 24 | penalty[1] << 26 | penalty[2] << 28 | next << 30;
+    }
+
+    /**
+     * Unpacks a state
+     * @return the next player
+     */
+    private static int unpack(int key, int[] position, int[] penalty) {
+        for (int p=0; p<3; p++) {
+            position[p] = (key >>> (8*p)) & 0xFF;
+            penalty[p] = (key >>> (24 + 2*p)) & 0x3;
+        }
+        return key >>> 30;
+    }
+
+    /**
+     * Lists the reachable states and their transitions (breadth-first from the start)
+     */
+    private void buildChain() {
+        stateKeys = new int[1024];
+        tableKeys = new int[2048];
+        tableValues = new int[2048];
+        Arrays.fill(tableKeys, EMPTY);
+        rowStart = new int[1025];
+        targets = new int[8192];
+        counts = new byte[8192];
+        winCounts = new byte[1024 * players];
+
+        int[] position = new int[players], penalty = new int[players];
+        stateNumber(pack(position, penalty, 0)); //start of the game
+
+        for (int state=0; state<stateCount; state++) {
+            rowStart[state] = edgeCount;
+            for (int sum=MIN_SUM; sum<=MAX_SUM; sum++) {
+                int next = unpack(stateKeys[state], position, penalty);
+                int count = 6 - Math.abs(sum - 7); //ways to roll the sum
+                if (move(position, penalty, next, sum)) { //the player wins
+                    winCounts[state * players + next] += count;
+                } else {
+                    next = passTurn(penalty, next);
+                    addEdge(rowStart[state], stateNumber(pack(position, penalty, next)), count);
+                }
+            }
+        }
+        rowStart[stateCount] = edgeCount;
+    }
+
+    /**
+     * Moves a player, following the rules of Board.processNextTurn
+     * @param position - positions of every player (updated)
+     * @param penalty - penalties of every player (updated)
+     * @param player - the player who rolls the dice
+     * @param diceResult - sum of the dice
+     * @return true if the player reached the last tile
+     */
+    private boolean move(int[] position, int[] penalty, int player, int diceResult) {
+        int current = position[player];
+        int nextPosition = Math.min(current + diceResult, tileNumber-1); //no out-of-bounds
+        switch (tiles[nextPosition]) {
+            case Board.FALL_CHAR:
+                nextPosition = Math.max(current - diceResult, 0);
+                break;
+            case Board.BIRD_CHAR:
+                nextPosition = Math.min(nextPosition + Board.BIRD_JUMP, tileNumber-1);
+                break;
+            case Board.PENALTY_CHAR:
+                penalty[player] = Board.PENALTY_TURNS;
+                break;
+        }
+        position[player] = nextPosition;
+        return nextPosition == tileNumber-1;
+    }
+
+    /**
+     * Passes the turn, following the rules of Board.passTurn and Board.checkTurnSkip
+     * @param penalty - penalties of every player (updated)
+     * @param player - the player who just played
+     * @return the next player who can roll the dice
+     */
+    private int passTurn(int[] penalty, int player) {
+        int next = (player + 1) % players;
+        while (penalty[next] > 0) {
+            penalty[next]--;
+            next = (next + 1) % players;
+        }
+        return next;
+    }
+
+    /**
+     * Finds a state's number, adding the state if it is new
+     * @param key - the packed state
+     * @return the state number
+     */
+    private int stateNumber(int key) {
+        int mask = tableKeys.length - 1;
+        int slot = Integer.hashCode(key * 0x9E3779B9) & mask;
+        while (tableKeys[slot] != EMPTY) {
+            if (tableKeys[slot] == key) {return tableValues[slot];}
+            slot = (slot + 1) & mask;
+        }
+        if (stateCount == stateKeys.length) {
+            int capacity = stateCount * 2;
+            stateKeys = Arrays.copyOf(stateKeys, capacity);
+            rowStart = Arrays.copyOf(rowStart, capacity + 1);
+            winCounts = Arrays.copyOf(winCounts, capacity * players);
+        }
+        tableKeys[slot] = key;
+        tableValues[slot] = stateCount;
+        stateKeys[stateCount] = key;
+        if (stateCount * 2 >= tableKeys.length) {growTable();}
+        return stateCount++;
+    }
+
+    /**
+     * Doubles the hash table
+     */
+    private void growTable() {
+        int[] oldKeys = tableKeys, oldValues = tableValues;
+        tableKeys = new int[oldKeys.length * 2];
+        tableValues = new int[oldKeys.length * 2];
+        Arrays.fill(tableKeys, EMPTY);
+        int mask = tableKeys.length - 1;
+        for (int i=0; i<oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = Integer.hashCode(oldKeys[i] * 0x9E3779B9) & mask;
+                while (tableKeys[slot] != EMPTY) {slot = (slot + 1) & mask;}
+                tableKeys[slot] = oldKeys[i];
+                tableValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Adds a transition to the current state, merging it with an equal target
+     * @param row - first transition of the current state
+     * @param target - the target state
+     * @param count - dice outcomes leading to it
+     */
+    private void addEdge(int row, int target, int count) {
+        for (int e=row; e<edgeCount; e++) {
+            if (targets[e] == target) {counts[e] += count; return;}
+        }
+        if (edgeCount == targets.length) {
+            targets = Arrays.copyOf(targets, edgeCount * 2);
+            counts = Arrays.copyOf(counts, edgeCount * 2);
+        }
+        targets[edgeCount] = target;
+        counts[edgeCount++] = (byte) count;
+    }
+
+    /**
+     * Solves the chain by Gauss-Seidel iteration:
+     * E(s) = 1 + sum(p * E(t)) and W(s) = wins(s) + sum(p * W(t)), over the transitions s -> t
+     * States are updated in reverse order of discovery, so that most targets already hold this
+     * iteration's values
+     */
+    public void solve() {
+        //values[s*VALUES] == expected turns of s, followed by the win probability of each player
+        double[] values = new double[stateCount * VALUES];
+        double change;
+        iterations = 0;
+        do {
+            change = 0;
+            for (int s=stateCount-1; s>=0; s--) { //later states are usually closer to the end
+                double turns = DICE_OUTCOMES;
+                double w0 = winCounts[s*players], w1 = winCounts[s*players+1],
+                        w2 = winCounts[s*players+2];
+                for (int e=rowStart[s]; e<rowStart[s+1]; e++) {
+                    int t = targets[e] * VALUES;
+                    int c = counts[e];
+                    turns += c * values[t];
+                    w0 += c * values[t+1];
+                    w1 += c * values[t+2];
+                    w2 += c * values[t+3];
+                }
+                turns /= DICE_OUTCOMES;
+                w0 /= DICE_OUTCOMES; w1 /= DICE_OUTCOMES; w2 /= DICE_OUTCOMES;
+                int v = s * VALUES;
+                change = Math.max(change, Math.abs(turns - values[v]));
+                change = Math.max(change, Math.abs(w0 - values[v+1]));
+                change = Math.max(change, Math.abs(w1 - values[v+2]));
+                change = Math.max(change, Math.abs(w2 - values[v+3]));
+                values[v] = turns;
+                values[v+1] = w0;
+                values[v+2] = w1;
+                values[v+3] = w2;
+            }
+            iterations++;
+        } while (change > TOLERANCE && iterations < MAX_ITERATIONS);
+
+        expectedTurns = values[0];
+        winProbability = Arrays.copyOfRange(values, 1, 1 + players);
+    }
+
+    /**
+     * @return number of reachable states
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Pre: solve() was called
+     * @return expected number of turns (dice commands) until the game is over
+     */
+    public double getExpectedTurns() {
+        return expectedTurns;
+    }
+
+    /**
+     * Pre: solve() was called
+     * @param player - index of the player in order of play
+     * @return probability of the player winning the game
+     */
+    public double getWinProbability(int player) {
+        return winProbability[player];
+    }
+}
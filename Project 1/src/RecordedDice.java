@@ -0,0 +1,222 @@
+/** RECORDEDDICE CLASS
+ * @author Afonso Brás Sousa
+ * Dice replayed from a recording file, memory-mapped, so recordings of billions of rolls are read
+ * at memory speed without any parsing
+ * Format: one byte per roll, the first dice in the high 4 bits and the second in the low 4 bits
+ * (0x34 == 3 and 4); the file has no header, its size is the number of rolls
+ * The file is mapped in windows of up to WINDOW bytes (a single mapping can't pass 2 GB)
+ * Recordings are made from any other source (e.g. seeded random dice) or from the valid dice
+ * commands of a script in Main's input format, which replay to the same games as the script
+ * Usage: RecordedDice record [output file] [rolls] [seed]
+ *        RecordedDice convert [script] [output file]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class RecordedDice implements DiceSource, Closeable {
+    //Constants
+    private static final long WINDOW = 1L << 30; //bytes mapped at once
+    private static final int WRITE_BUFFER_SIZE = 1 << 16; //bytes written at once
+    private static final String CMD_DICE = "dice";
+    private static final String RECORD = "record";
+    private static final String CONVERT = "convert";
+
+    //Instance variables
+    private final FileChannel channel;
+    private final long rolls; //rolls in the recording
+    private MappedByteBuffer window; //the mapped part of the file
+    private long windowEnd; //roll after the last one of the window
+    private long position; //rolls read
+    private int dice1; //last roll
+    private int dice2;
+
+    /** MAIN
+     * Records random rolls or converts a script, then prints how long it took
+     * @throws IOException - if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : RECORD;
+        long start = System.nanoTime();
+        long rolls;
+        if (mode.equals(CONVERT)) {
+            rolls = convert(args[1], args.length > 2 ? args[2] : "dice.bin");
+        } else if (mode.equals(RECORD)) {
+            String path = args.length > 1 ? args[1] : "dice.bin";
+            long count = args.length > 2 ? Long.parseLong(args[2]) : 1_000_000_000L;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            rolls = write(path, new RandomDice(seed), count);
+        } else {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        long time = System.nanoTime() - start;
+        System.out.printf("Recorded %d rolls in %d ms (%.0f rolls/s)\n",
+                rolls, time / 1_000_000, rolls * 1e9 / time);
+    }
+
+    /** Constructor
+     * Opens a recording, ready to replay its first roll
+     * @param path - the recording file
+     * @throws IOException - if the file cannot be opened
+     */
+    public RecordedDice(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        rolls = channel.size();
+        position = 0;
+        windowEnd = 0;
+    }
+
+    //Methods
+    /**
+     * Records the rolls of a source
+     * @param path - the recording file (replaced)
+     * @param dice - the source
+     * @param rolls - how many rolls to record
+     * @return how many rolls were recorded (fewer if the source ran out)
+     * @throws IOException - propagates file errors to the caller
+     */
+    public static long write(String path, DiceSource dice, long rolls) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        long written = 0;
+        try (FileChannel out = new FileOutputStream(path).getChannel()) {
+            while (written < rolls && dice.next()) {
+                buffer.put(encode(dice.getDice1(), dice.getDice2()));
+                written++;
+                if (!buffer.hasRemaining()) {flush(buffer, out);}
+            }
+            flush(buffer, out);
+        }
+        return written;
+    }
+
+    /**
+     * Records the valid dice commands of a script, in order (the other commands are skipped;
+     * invalid dice are skipped too, since Main doesn't play them)
+     * @param script - the script, in Main's input format
+     * @param path - the recording file (replaced)
+     * @return how many rolls were recorded
+     * @throws IOException - propagates file errors to the caller
+     * @throws NumberFormatException - if a dice command isn't followed by 2 integers (as in Main)
+     */
+    public static long convert(String script, String path) throws IOException {
+        try (InputStream input = new FileInputStream(script)) {
+            CommandReader in = new CommandReader(input);
+            in.nextToken(); in.nextLine(); //player order
+            in.nextInt(); in.nextLine(); //number of tiles
+            Main.saveTileArray(in); //penalty tiles
+            Main.saveTileArray(in); //fall tiles
+            return write(path, new DiceSource() { //the script's dice commands, as a source
+                @Override
+                public boolean next() {
+                    while (in.next()) {
+                        if (!in.isCommand(CMD_DICE)) {continue;}
+                        in.decodeDice(); //Pre: 2 integers
+                        if (isValid(in.getDice1()) && isValid(in.getDice2())) {return true;}
+                    }
+                    return false;
+                }
+
+                @Override
+                public int getDice1() {return in.getDice1();}
+
+                @Override
+                public int getDice2() {return in.getDice2();}
+            }, Long.MAX_VALUE);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {out.write(buffer);}
+        buffer.clear();
+    }
+
+    /**
+     * @param dice1 - first dice value
+     * @param dice2 - second dice value
+     * @return the byte of the roll
+     */
+    private static byte encode(int dice1, int dice2) {
+        return (byte) (dice1 << 4 | dice2);
+    }
+
+    /**
+     * @param dice - a dice value
+     * @return true if it's between 1 and 6
+     */
+    private static boolean isValid(int dice) {
+        return dice >= 1 && dice <= 6;
+    }
+
+    /**
+     * Replays the next roll
+     * @return false at the end of the recording
+     * @throws IllegalStateException - if the roll isn't a valid pair of dice (corrupted recording)
+     * @throws UncheckedIOException - if the next part of the file cannot be mapped
+     */
+    @Override
+    public boolean next() {
+        if (position == windowEnd) {
+            if (position == rolls) {return false;}
+            map();
+        }
+        int roll = window.get();
+        dice1 = (roll >> 4) & 0xF;
+        dice2 = roll & 0xF;
+        if (!isValid(dice1) || !isValid(dice2)) {
+            throw new IllegalStateException("Invalid roll " + position + " in the recording");
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * Maps the part of the file that starts at the next roll
+     */
+    private void map() {
+        long length = Math.min(WINDOW, rolls - position);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        windowEnd = position + length;
+    }
+
+    @Override
+    public int getDice1() {
+        return dice1;
+    }
+
+    @Override
+    public int getDice2() {
+        return dice2;
+    }
+
+    /**
+     * @return number of rolls in the recording
+     */
+    public long getRolls() {
+        return rolls;
+    }
+
+    /**
+     * @return number of rolls already replayed
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Closes the file (the rolls already mapped can't be replayed anymore)
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
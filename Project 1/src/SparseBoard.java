@@ -0,0 +1,53 @@
+/** SPARSEBOARD CLASS
+ * @author Afonso Brás Sousa
+ * Tile types of huge boards where only a small fraction of the tiles are special
+ * Bird tiles are computed from their position and the penalty and fall tiles are kept in sorted
+ * arrays, so memory grows with the number of special tiles instead of the number of tiles
+ */
+
+import java.util.Arrays;
+
+public class SparseBoard {
+    //Instance variables
+    private final int tileNumber;
+    private final int birdMult; //a bird tile every N tiles
+    private final int[] penaltyTiles; //sorted indexes of the penalty tiles (tile N == index N-1)
+    private final int[] fallTiles; //sorted indexes of the fall tiles
+
+    /** Constructor
+     * @param tileNumber - the number of tiles of the board
+     * @param birdMult - defines a bird tile every N tiles
+     * @param penaltyTiles - which tiles are marked as "penalty" (tile numbers, starting at 1)
+     * @param fallTiles - which tiles are marked as "fall" (tile numbers, starting at 1)
+     */
+    public SparseBoard(int tileNumber, int birdMult, int[] penaltyTiles, int[] fallTiles) {
+        this.tileNumber = tileNumber;
+        this.birdMult = birdMult;
+        this.penaltyTiles = sortedIndexes(penaltyTiles);
+        this.fallTiles = sortedIndexes(fallTiles);
+    }
+
+    //Methods
+    /**
+     * @param tiles - tile numbers (starting at 1)
+     * @return the sorted array indexes of the tiles
+     */
+    private static int[] sortedIndexes(int[] tiles) {
+        int[] indexes = new int[tiles.length];
+        for (int i=0; i<tiles.length; i++) {indexes[i] = tiles[i]-1;}
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * @param square - index of the requested square
+     * @return the "type" of the requested square, with the same priority as Board's array
+     * (fall tiles over penalty tiles over bird tiles)
+     */
+    public char getSquareType(int square) {
+        if (Arrays.binarySearch(fallTiles, square) >= 0) {return Board.FALL_CHAR;}
+        if (Arrays.binarySearch(penaltyTiles, square) >= 0) {return Board.PENALTY_CHAR;}
+        if ((square+1) % birdMult == 0 && square < tileNumber-1) {return Board.BIRD_CHAR;}
+        return 0;
+    }
+}
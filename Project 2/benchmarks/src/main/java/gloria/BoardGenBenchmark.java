@@ -0,0 +1,42 @@
+/** BOARDGENBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Board parsing: the first board of the boards file and the last one (the whole file is scanned
+ * before it)
+ */
+
+package gloria;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BoardGenBenchmark {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final String EARLY = "early";
+
+    //Instance variables
+    @Param({"early", "late"})
+    private String board;
+
+    private int boardNumber;
+
+    //Methods
+    @Setup
+    public void setUp() throws IOException {
+        boardNumber = board.equals(EARLY) ? 1 : BoardIndex.build(BOARD_FILE_NAME).size();
+    }
+
+    @Benchmark
+    public int[] parse() throws IOException {
+        return new BoardGen(BOARD_FILE_NAME, boardNumber).getBoard();
+    }
+}
@@ -0,0 +1,60 @@
+/** ITERATORBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Ranking and alive iterators at different roster sizes, over games where some turns were played
+ * so that the players are spread over the board
+ */
+
+package gloria;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class IteratorBenchmark {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final long SEED = 1;
+
+    //Instance variables
+    @Param({"10", "1000", "100000"})
+    private int rosterSize;
+
+    private Gameplay game;
+
+    //Methods
+    @Setup
+    public void setUp() throws IOException {
+        BoardIndex index = BoardIndex.build(BOARD_FILE_NAME);
+        BoardView board = new TransitionTable(new DenseBoard(new BoardGen(index, 1).getBoard()));
+        PlayerRoster roster = new PlayerRoster();
+        for (int i=0; i<rosterSize; i++) {roster.add("P" + i);}
+        game = new Gameplay(board, roster);
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int turn=0; turn<2*rosterSize && !game.isCupOver(); turn++) {
+            int dice1 = random.nextInt(6) + 1, dice2 = random.nextInt(6) + 1;
+            game.processNextTurn(Math.min(dice1, dice2), Math.max(dice1, dice2));
+        }
+    }
+
+    @Benchmark
+    public void rankIt(Blackhole blackhole) {
+        PlayerIterator it = game.rankIt();
+        while (it.hasNext()) {blackhole.consume(it.next().getScore());}
+    }
+
+    @Benchmark
+    public void aliveIt(Blackhole blackhole) {
+        PlayerIterator it = game.aliveIt();
+        while (it.hasNext()) {blackhole.consume(it.next().getPosition());}
+    }
+}
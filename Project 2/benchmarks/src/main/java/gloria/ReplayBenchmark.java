@@ -0,0 +1,103 @@
+/** REPLAYBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Replays of whole command scripts, the same way Main runs its input, through the command
+ * interpreter (one thread) and through the replay pipeline (three threads, see ReplayPipeline)
+ * The output is discarded and the board is loaded once, not per replay
+ * Scripts in Main's input format are replayed with -p script=[path],...; by default a script with
+ * random commands is recorded, in the proportions of a typical session
+ */
+
+package gloria;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final String RECORDED = "recorded";
+    private static final String PIPELINE = "pipeline";
+    private static final int RECORDED_COMMANDS = 100_000; //size of the recorded script
+    private static final long SEED = 1;
+
+    //Instance variables
+    @Param({RECORDED})
+    private String script;
+
+    @Param({"interpreter", PIPELINE})
+    private String mode;
+
+    private byte[] input;
+    private TransitionTable board;
+
+    //Methods
+    @Setup
+    public void setUp() throws IOException {
+        input = script.equals(RECORDED) ? recordScript(RECORDED_COMMANDS)
+                : Files.readAllBytes(Paths.get(script));
+        CommandReader in = new CommandReader(new ByteArrayInputStream(input));
+        in.nextToken(); in.nextLine(); //player order
+        int boardNumber = in.nextInt();
+        BoardIndex index = BoardIndex.build(BOARD_FILE_NAME);
+        board = new TransitionTable(new DenseBoard(new BoardGen(index, boardNumber).getBoard()));
+    }
+
+    @Benchmark
+    public Gameplay replay() throws IOException {
+        boolean pipelined = mode.equals(PIPELINE);
+        OutputWriter out = new OutputWriter(OutputStream.nullOutputStream(), false);
+        CommandReader in = new CommandReader(new ByteArrayInputStream(input),
+                pipelined ? null : out);
+        String playerOrder = in.nextToken(); in.nextLine();
+        in.nextInt(); in.nextLine(); //board number (loaded by setUp)
+        Gameplay game = new Gameplay(board, playerOrder);
+        if (pipelined) {ReplayPipeline.run(game, in, out);}
+        else {Main.executeCmdLoop(game, in, out);}
+        out.flush();
+        return game;
+    }
+
+    /**
+     * Records a script with random commands, in the proportions of a typical session
+     * @param commands - number of commands
+     * @return the script, in Main's input format
+     */
+    private static byte[] recordScript(int commands) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        String playerOrder = "ABCDEFGHIJ";
+        StringBuilder script = new StringBuilder(playerOrder).append("\n1\n");
+        for (int i=0; i<commands; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                script.append("dice ").append(random.nextInt(6) + 1).append(' ')
+                        .append(random.nextInt(6) + 1);
+            } else if (kind == 6) {
+                script.append("square ").append(playerOrder.charAt(random.nextInt(10)));
+            } else if (kind == 7) {
+                script.append("status ").append(playerOrder.charAt(random.nextInt(10)));
+            } else if (kind == 8) {
+                script.append("player");
+            } else {
+                script.append("ranking");
+            }
+            script.append('\n');
+        }
+        script.append("exit\n");
+        return script.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,52 @@
+/** TURNBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Turns on each board of the boards file, with precomputed moves (a new cup starts when the last
+ * one is over)
+ */
+
+package gloria;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TurnBenchmark {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final String PLAYER_ORDER = "ABCDEFG";
+    private static final long SEED = 1;
+
+    //Instance variables
+    @Param({"1", "2", "3"}) //every board of boards.txt
+    private int boardNumber;
+
+    private BoardView board;
+    private SplittableRandom random;
+    private Gameplay game;
+
+    //Methods
+    @Setup
+    public void setUp() throws IOException {
+        BoardIndex index = BoardIndex.build(BOARD_FILE_NAME);
+        board = new TransitionTable(new DenseBoard(new BoardGen(index, boardNumber).getBoard()));
+        random = new SplittableRandom(SEED);
+        game = new Gameplay(board, PLAYER_ORDER);
+    }
+
+    @Benchmark
+    public Gameplay processNextTurn() {
+        if (game.isCupOver()) {game = new Gameplay(board, PLAYER_ORDER);}
+        int dice1 = random.nextInt(6) + 1, dice2 = random.nextInt(6) + 1;
+        game.processNextTurn(Math.min(dice1, dice2), Math.max(dice1, dice2));
+        return game;
+    }
+}
@@ -0,0 +1,295 @@
+/** ARRAYGAMEPLAY CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Game engine for simulations: same rules and results as the Gameplay class, but the players'
+ * state is kept in parallel primitive arrays instead of Player objects
+ * A single engine can play any number of cups (see reset), so playing a cup creates no objects
+ */
+
+public class ArrayGameplay {
+    //Constants
+    private static final int SPECIALDICE_LOW = 3; //Lowest dice value for special case
+    private static final int SPECIALDICE_HIGH = 6; //Highest dice value for special case
+
+    //Instance variables
+    private final TransitionTable moves; //precomputed moves of the board
+    private final int lastTile;
+    private final char[] color; //color[i] == color of the player who plays i-th
+    private final int[] position;
+    private final int[] penalty;
+    private final int[] score;
+    private final int[] deathOrder; //0 == not dead; <0 == game in which they died (see Player)
+    private final int size; //number of players
+    private int nextPlayer;
+    private boolean deathOccurred;
+    private int turnNumber;
+    private int alivePlayers;
+    private boolean cupOver;
+    private int deathTileDeaths; //players killed by a death tile in this cup
+
+    /** Constructor
+     * @param moves - the board, with precomputed moves
+     * @param playerOrder - string representing the players who'll play the game
+     * pre: playerOrder must have between 3 and 10 unique capital letters
+     */
+    public ArrayGameplay(TransitionTable moves, String playerOrder) {
+        this.moves = moves;
+        lastTile = moves.getTileNumber()-1;
+        color = playerOrder.toCharArray();
+        size = color.length;
+        position = new int[size];
+        penalty = new int[size];
+        score = new int[size];
+        deathOrder = new int[size];
+        reset();
+    }
+
+    //Methods
+    /**
+     * Starts a new cup with the same board and players
+     */
+    public void reset() {
+        for (int i=0; i<size; i++) {
+            position[i] = 0;
+            penalty[i] = 0;
+            score[i] = 0;
+            deathOrder[i] = 0;
+        }
+        nextPlayer = 0;
+        deathOccurred = false;
+        turnNumber = 0;
+        alivePlayers = size;
+        cupOver = false;
+        deathTileDeaths = 0;
+    }
+
+    /**
+     * Searches for a player by their color
+     * @param searchColor - requested player's color
+     * @return index of the player in order of play, -1 if no player found
+     */
+    public int searchPlayer(char searchColor) {
+        int i = size-1;
+        while (i>=0 && searchColor != color[i]) {i--;}
+        return i;
+    }
+
+    /**
+     * @return number of players
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return color of the next player to roll the dice
+     */
+    public char getNextPlayer() {
+        return color[nextPlayer];
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return color of the player
+     */
+    public char getColor(int index) {
+        return color[index];
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return position of the requested player
+     */
+    public int getPlayerSquare(int index) {
+        return position[index];
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return can the requested player roll the dice when it's their turn?
+     */
+    public boolean getPlayerStatus(int index) {
+        return penalty[index] == 0;
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return is the requested player dead?
+     */
+    public boolean getDeathCertificate(int index) {
+        return deathOrder[index] != 0;
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return games won by the player
+     */
+    public int getScore(int index) {
+        return score[index];
+    }
+
+    /**
+     * @param index - index of the requested player in order of play
+     * @return the game in which the player died (negative number) or 0 if not dead
+     */
+    public int getDeathOrder(int index) {
+        return deathOrder[index];
+    }
+
+    /**
+     * @return how many players were killed by a death tile in this cup (the others were last)
+     */
+    public int getDeathTileDeaths() {
+        return deathTileDeaths;
+    }
+
+    /**
+     * @return is the cup over?
+     */
+    public boolean isCupOver() {
+        return cupOver;
+    }
+
+    /**
+     * Pre: isCupOver()
+     * @return color of the cup winner
+     */
+    public char getWinner() {
+        return color[bestRanked()];
+    }
+
+    /**
+     * Rolls the dice of a dice source and processes one turn (see Gameplay.playNextTurn)
+     * pre: !isCupOver()
+     * @param dice - where the dice come from
+     * @return false if the source had no rolls left (no turn was processed)
+     */
+    public boolean playNextTurn(DiceSource dice) {
+        if (!dice.next()) {return false;}
+        int dice1 = dice.getDice1(), dice2 = dice.getDice2();
+        if (dice1 < dice2) {processNextTurn(dice1, dice2);}
+        else {processNextTurn(dice2, dice1);}
+        return true;
+    }
+
+    /**
+     * Processes one turn (same rules as Gameplay.processNextTurn)
+     * @param diceLow - lowest dice value
+     * @param diceHigh - highest dice value
+     * Pre: both dice >=1 && <=6
+     */
+    public void processNextTurn(int diceLow, int diceHigh) {
+        int player = nextPlayer;
+        int nextPosition;
+
+        if (turnNumber < alivePlayers && diceLow==SPECIALDICE_LOW && diceHigh==SPECIALDICE_HIGH) {
+            nextPosition = lastTile; //special case - instant win
+        } else {
+            int move = moves.getMove(position[player], diceLow + diceHigh);
+            int effect = TransitionTable.getEffect(move);
+            if (effect == TransitionTable.EFFECT_DEATH) {applyDeath(player);}
+            else if (effect != TransitionTable.EFFECT_NONE) {penalty[player] = effect;}
+            nextPosition = TransitionTable.getLanding(move);
+            turnNumber++;
+        }
+        position[player] = nextPosition;
+
+        if (nextPosition == lastTile) {endGame(player);}
+        else {passTurn();}
+    }
+
+    /**
+     * Death tile (same rules as Gameplay)
+     * @param player - the current player
+     */
+    private void applyDeath(int player) {
+        if (!deathOccurred) {
+            deathOrder[player] = -(size - alivePlayers + 1);
+            deathOccurred = true;
+            deathTileDeaths++;
+            if (alivePlayers == 2) {
+                cupOver = true;
+                score[bestRanked()]++;
+                alivePlayers--;
+            }
+        }
+    }
+
+    /**
+     * A player reached the last tile (same rules as Gameplay.checkForWinner)
+     * @param player - the winner of the game
+     */
+    private void endGame(int player) {
+        score[player]++;
+        if (!deathOccurred) {
+            deathOrder[lastAlive()] = -(size - alivePlayers + 1);
+        }
+        alivePlayers--;
+        if (alivePlayers > 1) {resetGame();}
+        else {cupOver = true;}
+    }
+
+    /**
+     * Passes the turn to the next player who can play, lowering the penalties of the skipped
+     * players (same rules as Gameplay.passTurn and Gameplay.checkTurnSkip)
+     */
+    private void passTurn() {
+        while (true) {
+            nextPlayer++;
+            if (nextPlayer >= size) {nextPlayer = 0;}
+            if (deathOrder[nextPlayer] != 0) {continue;} //dead
+            if (penalty[nextPlayer] == 0) {return;}
+            penalty[nextPlayer]--;
+        }
+    }
+
+    /**
+     * Resets the game after a win
+     */
+    private void resetGame() {
+        nextPlayer = 0;
+        while (deathOrder[nextPlayer] != 0) {nextPlayer++;}
+        deathOccurred = false;
+        turnNumber = 0;
+        for (int i=0; i<size; i++) {
+            position[i] = 0;
+            penalty[i] = 0;
+        }
+    }
+
+    /**
+     * @return index of the best ranked player (same order as Player.compareRank)
+     */
+    private int bestRanked() {
+        int best = 0;
+        for (int i=1; i<size; i++) {
+            if (compareRank(i, best) > 0) {best = i;}
+        }
+        return best;
+    }
+
+    /**
+     * Same order as Player.compareRank: survivors first (then who died last), score, position
+     * and playing order
+     * @return positive if player a ranks above player b
+     */
+    private int compareRank(int a, int b) {
+        int da = deathOrder[a], db = deathOrder[b];
+        if (da != db) {return (da < 0 && db < 0) ? db - da : da - db;}
+        if (score[a] != score[b]) {return score[a] - score[b];}
+        if (position[a] != position[b]) {return position[a] - position[b];}
+        return b - a;
+    }
+
+    /**
+     * @return index of the alive player who dies at the end of a game
+     * (lowest position, then last in playing order; same order as Player.aliveCompare)
+     */
+    private int lastAlive() {
+        int last = -1;
+        for (int i=0; i<size; i++) {
+            if (deathOrder[i] == 0 && (last == -1 || position[i] <= position[last])) {last = i;}
+        }
+        return last;
+    }
+}
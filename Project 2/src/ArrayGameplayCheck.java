@@ -0,0 +1,89 @@
+/** ARRAYGAMEPLAYCHECK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Differential check of ArrayGameplay against Gameplay
+ * Plays random cups on every board with both engines (the array engine reused through reset)
+ * and compares every player's state after every turn; exits with status 1 on the first difference
+ * Usage: ArrayGameplayCheck [cups per board] [seed]
+ */
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class ArrayGameplayCheck {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /** MAIN
+     * @throws IOException - if the boards file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int cups = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+
+        BoardIndex index = BoardIndex.build(BOARD_FILE_NAME);
+        long turns = 0;
+        for (int boardNumber=1; boardNumber<=index.size(); boardNumber++) {
+            TransitionTable board = new TransitionTable(
+                    new DenseBoard(new BoardGen(index, boardNumber).getBoard()));
+            for (int size=3; size<=10; size++) {
+                String playerOrder = randomOrder(random, size);
+                ArrayGameplay arrayGame = new ArrayGameplay(board, playerOrder);
+                for (int cup=0; cup<cups; cup++) {
+                    Gameplay game = new Gameplay(board, playerOrder);
+                    arrayGame.reset();
+                    while (!game.isCupOver()) {
+                        int dice1 = random.nextInt(6) + 1, dice2 = random.nextInt(6) + 1;
+                        int low = Math.min(dice1, dice2), high = Math.max(dice1, dice2);
+                        game.processNextTurn(low, high);
+                        arrayGame.processNextTurn(low, high);
+                        turns++;
+                        String difference = compare(game, arrayGame);
+                        if (difference != null) {
+                            System.out.printf("Board %d, players %s, cup %d: %s\n",
+                                    boardNumber, playerOrder, cup, difference);
+                            System.exit(1);
+                        }
+                    }
+                }
+            }
+        }
+        System.out.printf("OK: %d turns compared\n", turns);
+    }
+
+    /**
+     * @return a random order of unique capital letters
+     */
+    private static String randomOrder(SplittableRandom random, int size) {
+        char[] letters = LETTERS.toCharArray();
+        for (int i=0; i<size; i++) { //partial shuffle
+            int j = i + random.nextInt(letters.length - i);
+            char tmp = letters[i]; letters[i] = letters[j]; letters[j] = tmp;
+        }
+        return new String(letters, 0, size);
+    }
+
+    /**
+     * Compares the state of both engines
+     * @return a description of the first difference, or null if there is none
+     */
+    private static String compare(Gameplay game, ArrayGameplay arrayGame) {
+        if (game.isCupOver() != arrayGame.isCupOver()) {return "cup over";}
+        if (game.isCupOver()) {
+            if (game.getWinner() != arrayGame.getWinner()) {return "winner";}
+        } else if (game.getNextPlayer() != arrayGame.getNextPlayer()) {
+            return "next player";
+        }
+        PlayerIterator it = game.iterator();
+        for (int i=0; it.hasNext(); i++) {
+            Player player = it.next();
+            if (player.getPosition() != arrayGame.getPlayerSquare(i)) {return "position of " + i;}
+            if (player.canRollDice() != arrayGame.getPlayerStatus(i)) {return "penalty of " + i;}
+            if (player.getScore() != arrayGame.getScore(i)) {return "score of " + i;}
+            if (player.getDeathOrder() != arrayGame.getDeathOrder(i)) {return "death of " + i;}
+        }
+        return null;
+    }
+}
@@ -0,0 +1,262 @@
+/** BOARDANALYZER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Fairness report of every board of a boards file: each board is simulated with 3 to 10 players
+ * and the report gives, per number of players, the expected cup length (turns), the first
+ * player's advantage (their cup-win rate over the fair 1/players) and how often the player who
+ * dies in a game is killed by a death tile (instead of being last)
+ * The file is streamed: boards are read one at a time and analyzed on every core, with a bounded
+ * number of boards in flight, and the report is printed in board order (CSV)
+ * Results are cached on disk, keyed by a hash of the board's tiles and the analysis settings, so
+ * boards that were already analyzed (in this file or in any other) are never simulated again.
+ * Each board's dice are seeded from the same hash, so the results don't depend on where the
+ * board is in the file
+ * Usage: BoardAnalyzer [boards file] [cups per number of players] [cache directory] [threads]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BoardAnalyzer {
+    //Constants
+    private static final int MIN_PLAYERS = 3;
+    private static final int MAX_PLAYERS = 10;
+    private static final String PLAYER_ORDER = "ABCDEFGHIJ";
+    private static final int METRICS = 3; //turns per cup, first player advantage, death tile rate
+    private static final int VALUES = (MAX_PLAYERS - MIN_PLAYERS + 1) * METRICS; //per board
+    private static final int VERSION = 1; //part of the cache key: change it when analyses change
+    private static final int BOARDS_PER_THREAD = 16; //boards in flight per thread
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L; //spreads player counts over seeds
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    //Instance variables
+    private final int cups; //cups per number of players
+    private final Path cacheDirectory; //null: no cache
+
+    /** MAIN
+     * Analyzes every board and prints the report
+     * @throws IOException - if the boards file cannot be read or the cache cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : "boards.txt";
+        int cups = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        String cache = args.length > 2 ? args[2] : path + ".analysis";
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+
+        BoardAnalyzer analyzer = new BoardAnalyzer(cups, cache);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.US_ASCII), 1 << 16));
+        long start = System.nanoTime();
+        long[] totals = analyzer.analyze(path, threads, out);
+        out.flush();
+        System.err.printf("Analyzed %d boards (%d from the cache) in %d ms on %d threads\n",
+                totals[0], totals[1], (System.nanoTime() - start) / 1_000_000, threads);
+    }
+
+    /** Constructor
+     * @param cups - cups simulated per board and number of players
+     *             - pre: >0
+     * @param cacheDirectory - where results are cached (created if needed), null for no cache
+     */
+    public BoardAnalyzer(int cups, String cacheDirectory) {
+        this.cups = cups;
+        this.cacheDirectory = cacheDirectory == null ? null : Paths.get(cacheDirectory);
+    }
+
+    //Methods
+    /**
+     * Analyzes every board of a boards file and prints the report in board order (CSV: board,
+     * tiles, players, turns per cup, first player advantage, death tile rate)
+     * @param path - the boards file
+     *             - pre: file is in the correct format
+     * @param threads - how many boards are analyzed at the same time
+     * @param out - where the report is printed
+     * @return number of boards, number of boards read from the cache
+     * @throws IOException - propagates file errors to the caller
+     */
+    public long[] analyze(String path, int threads, PrintWriter out) throws IOException {
+        if (cacheDirectory != null) {Files.createDirectories(cacheDirectory);}
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<double[]>> pending = new ArrayDeque<>(); //boards in order
+        ArrayDeque<Integer> tiles = new ArrayDeque<>();
+        long[] totals = new long[2];
+        long[] cached = new long[1];
+        out.println("board,tiles,players,turns_per_cup,first_player_advantage,death_tile_rate");
+        try (BufferedReader in = new BufferedReader(new FileReader(path), 1 << 16)) {
+            String text = readBoardText(in);
+            while (text != null || !pending.isEmpty()) {
+                while (text != null && pending.size() < threads * BOARDS_PER_THREAD) {
+                    int[] board = BoardGen.parse(text);
+                    tiles.add(board.length);
+                    pending.add(pool.submit(() -> analyzeBoard(board, cached)));
+                    text = readBoardText(in);
+                }
+                double[] metrics = pending.remove().get();
+                int tileNumber = tiles.remove();
+                totals[0]++;
+                for (int players=MIN_PLAYERS; players<=MAX_PLAYERS; players++) {
+                    int m = (players - MIN_PLAYERS) * METRICS;
+                    out.printf("%d,%d,%d,%.3f,%.4f,%.4f\n", totals[0], tileNumber, players,
+                            metrics[m], metrics[m+1], metrics[m+2]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing boards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Board analysis failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        synchronized (cached) {totals[1] = cached[0];}
+        return totals;
+    }
+
+    /**
+     * Reads the text of the next board of a boards file
+     * @param in - the boards file, positioned before a board (or at its end)
+     * @return the board text, null at the end of the file
+     * @throws IOException - propagates file errors to the caller
+     */
+    private static String readBoardText(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        while (line != null && line.trim().isEmpty()) {line = in.readLine();}
+        if (line == null) {return null;}
+        StringBuilder text = new StringBuilder(line).append('\n'); //tileNumber line
+        for (int section=0; section<2; section++) { //penalty tiles, then fall tiles
+            String count = in.readLine();
+            text.append(count).append('\n');
+            for (int i=Integer.parseInt(count.trim()); i>0; i--) {
+                text.append(in.readLine()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Analyzes one board, or reads its analysis from the cache
+     * @param board - the board array
+     * @param cached - incremented if the analysis was cached
+     * @return the metrics of each number of players (METRICS values per number of players)
+     */
+    private double[] analyzeBoard(int[] board, long[] cached) {
+        byte[] hash = hash(board);
+        Path file = cacheFile(hash);
+        if (file != null) {
+            double[] metrics = readCache(file);
+            if (metrics != null) {
+                synchronized (cached) {cached[0]++;}
+                return metrics;
+            }
+        }
+
+        TransitionTable moves = new TransitionTable(new DenseBoard(board));
+        long seed = ByteBuffer.wrap(hash).getLong();
+        double[] metrics = new double[VALUES];
+        for (int players=MIN_PLAYERS; players<=MAX_PLAYERS; players++) {
+            RandomDice dice = new RandomDice(seed ^ (players * SEED_MIX));
+            ArrayGameplay game = new ArrayGameplay(moves, PLAYER_ORDER.substring(0, players));
+            long turns = 0, firstPlayerWins = 0, deathTileDeaths = 0;
+            for (int cup=0; cup<cups; cup++) {
+                game.reset();
+                turns += Simulator.playCup(game, dice);
+                if (game.searchPlayer(game.getWinner()) == 0) {firstPlayerWins++;}
+                deathTileDeaths += game.getDeathTileDeaths();
+            }
+            int m = (players - MIN_PLAYERS) * METRICS;
+            metrics[m] = (double) turns / cups;
+            metrics[m+1] = (double) firstPlayerWins * players / cups; //1 == fair
+            //One death per game
+            metrics[m+2] = (double) deathTileDeaths / ((long) cups * (players - 1));
+        }
+        if (file != null) {writeCache(file, metrics);}
+        return metrics;
+    }
+
+    /**
+     * Hashes a board's tiles together with the analysis settings (the cache key)
+     * @param board - the board array
+     * @return the hash
+     */
+    private byte[] hash(int[] board) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            ByteBuffer bytes = ByteBuffer.allocate((board.length + 3) * Integer.BYTES);
+            bytes.putInt(VERSION).putInt(cups).putInt(board.length);
+            for (int tile : board) {bytes.putInt(tile);}
+            return digest.digest(bytes.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //every JVM has SHA-256
+        }
+    }
+
+    /**
+     * @param hash - the cache key
+     * @return the cache file of the key (in one of 256 subdirectories), null if there is no cache
+     */
+    private Path cacheFile(byte[] hash) {
+        if (cacheDirectory == null) {return null;}
+        StringBuilder name = new StringBuilder();
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return cacheDirectory.resolve(name.substring(0, 2)).resolve(name.substring(2));
+    }
+
+    /**
+     * @param file - a cache file
+     * @return the cached metrics, null if the file is missing, incomplete or not a cache file
+     */
+    private static double[] readCache(Path file) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VALUES) {return null;} //corrupted or foreign: analyzed again
+            double[] metrics = new double[VALUES];
+            for (int i=0; i<metrics.length; i++) {metrics[i] = in.readDouble();}
+            return metrics;
+        } catch (IOException e) {
+            return null; //not cached (or corrupted): analyzed again
+        }
+    }
+
+    /**
+     * Caches the metrics of a board
+     * The file is written under a temporary name first, so readers never see it half written
+     * @param file - the cache file
+     * @param metrics - the metrics
+     */
+    private static void writeCache(Path file, double[] metrics) {
+        Path temp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId()
+                + TEMP_EXTENSION);
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(metrics.length);
+                for (double metric : metrics) {out.writeDouble(metric);}
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/** BOARDCACHE CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Shared cache of read-only boards, so that games on the same board share a single copy
+ * Boards are identified by file, board number and a digest of the board's text (kept by the file's
+ * BoardIndex), so that a changed boards file never returns an outdated board
+ * Each file is checked for changes at most once every REVALIDATE_NANOS, so a cached board is
+ * returned without any file access
+ * Cached boards have their moves precomputed (see TransitionTable)
+ * The cache has a bounded size; the least recently used board is evicted first
+ * All methods are thread-safe; files are read outside the lock, so a slow read doesn't hold up
+ * requests for other boards
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class BoardCache {
+    //Constants
+    private static final long REVALIDATE_NANOS = 1_000_000_000L; //time between checks of a file
+
+    //Instance variables
+    private final int capacity; //maximum number of cached boards
+    private final LinkedHashMap<Key, BoardView> boards; //boards in access order (LRU first)
+    private final Map<String, Source> sources; //index of each boards file
+    private long hits;
+    private long misses;
+
+    /** Constructor
+     * @param capacity - maximum number of cached boards
+     *                 - pre: >=1
+     */
+    public BoardCache(int capacity) {
+        this.capacity = capacity;
+        this.boards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, BoardView> eldest) {
+                return size() > BoardCache.this.capacity;
+            }
+        };
+        this.sources = new HashMap<>();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Returns a shared read-only board, reading it from the file only if it isn't cached
+     * @param path - the path of the boards file
+     *             - pre: file exists and is in the correct format
+     * @param boardNumber - which board
+     *                    - pre: >=1
+     * @return the board view
+     * @throws IOException - propagates file errors to the caller
+     */
+    public BoardView getBoard(String path, int boardNumber) throws IOException {
+        BoardIndex index = getIndex(path);
+        Key key = new Key(path, boardNumber, index.getDigest(boardNumber));
+        synchronized (this) {
+            BoardView board = boards.get(key);
+            if (board != null) {
+                hits++;
+                return board;
+            }
+            misses++;
+        }
+        BoardView board =
+                new TransitionTable(new DenseBoard(new BoardGen(index, boardNumber).getBoard()));
+        synchronized (this) {
+            BoardView cached = boards.putIfAbsent(key, board); //read by another thread meanwhile
+            return cached != null ? cached : board;
+        }
+    }
+
+    /**
+     * Returns the index of a boards file, reloading it if the file changed since the last check
+     * (checked at most once every REVALIDATE_NANOS)
+     * @param path - the path of the boards file
+     *             - pre: file exists and is in the correct format
+     * @return the index of the file
+     * @throws IOException - propagates file errors to the caller
+     */
+    private BoardIndex getIndex(String path) throws IOException {
+        long now = System.nanoTime();
+        Source source;
+        synchronized (this) {
+            source = sources.get(path);
+            if (source != null && now - source.checked < REVALIDATE_NANOS) {return source.index;}
+        }
+        BoardIndex index = source != null && source.index.isCurrent() ? source.index
+                : BoardIndex.load(path);
+        synchronized (this) {
+            sources.put(path, new Source(index, now));
+        }
+        return index;
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of requests that had to read the board from the file
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of boards currently cached
+     */
+    public synchronized int size() {
+        return boards.size();
+    }
+
+    /**
+     * Removes every cached board and resets the counters
+     */
+    public synchronized void clear() {
+        boards.clear();
+        sources.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /** SOURCE CLASS
+     * Index of a boards file and when the file was last checked for changes
+     */
+    private static class Source {
+        private final BoardIndex index;
+        private final long checked; //System.nanoTime() of the check
+
+        Source(BoardIndex index, long checked) {
+            this.index = index;
+            this.checked = checked;
+        }
+    }
+
+    /** KEY CLASS
+     * Identifies a board by file, board number and content digest
+     */
+    private static class Key {
+        private final String path;
+        private final int boardNumber;
+        private final long digest;
+
+        Key(String path, int boardNumber, long digest) {
+            this.path = path;
+            this.boardNumber = boardNumber;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {return false;}
+            Key other = (Key) o;
+            return boardNumber == other.boardNumber && digest == other.digest
+                    && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + boardNumber) * 31 + Long.hashCode(digest);
+        }
+    }
+}
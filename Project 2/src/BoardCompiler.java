@@ -0,0 +1,87 @@
+/** BOARDCOMPILER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Compiles a boards file into the binary format read by the CompiledBoards class
+ * Every board is parsed once by BoardGen and saved as packed tile codes, so that games can start
+ * without parsing any text
+ *
+ * Binary format (big-endian):
+ *   header  - MAGIC (int), VERSION (int), number of boards (int)
+ *   table   - per board: offset of its first tile in the file (int), number of tiles (int)
+ *   tiles   - per tile: one byte with the same code used by the BoardGen array
+ *             (0 = normal, INT_BIRD, INT_FALL_*, negative numbers = penalty)
+ */
+
+import java.io.*;
+import java.util.Scanner;
+
+public class BoardCompiler {
+    //Constants
+    public static final int MAGIC = 0x474C5242; //"GLRB"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 12; //bytes: magic + version + number of boards
+    public static final int ENTRY_SIZE = 8; //bytes: offset + number of tiles
+
+    /** MAIN
+     * Usage: BoardCompiler [boards file] [binary file]
+     * @throws IOException - propagates file errors to the user
+     */
+    public static void main(String[] args) throws IOException {
+        String source = args.length > 0 ? args[0] : "boards.txt";
+        String target = args.length > 1 ? args[1] : source + ".bin";
+        int boards = compile(source, target);
+        System.out.printf("Compiled %d boards into %s\n", boards, target);
+    }
+
+    /**
+     * Compiles a boards file into a binary boards file
+     * @param source - the path of the boards file
+     *               - pre: file exists and is in the correct format
+     * @param target - the path of the binary file to be written
+     * @return the number of compiled boards
+     * @throws IOException - propagates file errors to the caller
+     */
+    public static int compile(String source, String target) throws IOException {
+        BoardIndex index = BoardIndex.build(source);
+        int count = index.size();
+
+        //First pass: board sizes (first line of each board), to write the table before the tiles
+        int[] tileNumbers = new int[count];
+        long offset = HEADER_SIZE + (long) ENTRY_SIZE * count;
+        for (int i=0; i<count; i++) {
+            Scanner board = new Scanner(index.readBoard(i+1));
+            tileNumbers[i] = board.nextInt();
+            board.close();
+            offset += tileNumbers[i];
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Too many tiles for a single binary boards file");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+
+            int tileOffset = HEADER_SIZE + ENTRY_SIZE * count;
+            for (int i=0; i<count; i++) {
+                out.writeInt(tileOffset);
+                out.writeInt(tileNumbers[i]);
+                tileOffset += tileNumbers[i];
+            }
+
+            //Second pass: packed tiles
+            for (int i=0; i<count; i++) {
+                int[] board = new BoardGen(index, i+1).getBoard();
+                for (int tile : board) {
+                    if (tile < Byte.MIN_VALUE || tile > Byte.MAX_VALUE) {
+                        throw new IOException("Tile code out of range in board " + (i+1));
+                    }
+                    out.writeByte(tile);
+                }
+            }
+        }
+        return count;
+    }
+}
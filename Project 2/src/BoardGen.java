@@ -6,13 +6,14 @@
  * Ensures safe file management - only this class is allowed to read external files
  */
 
+import java.util.Arrays;
 import java.util.Scanner;
 import java.io.*;
 
 public class BoardGen {
     //Board specification constants
     //The output constants are public so that the Gameplay class can correctly parse the array
-    private static final int BIRD_MULT = 9; //defines a bird tile every N tiles
+    public static final int BIRD_MULT = 9; //defines a bird tile every N tiles
     public static final int INT_BIRD = 1; //bird tile
     private static final String FALL_CRAB = "crab";
     public static final int INT_FALL_CRAB = 2; //fall-crab tile
@@ -39,19 +40,114 @@ public class BoardGen {
         //Skips lines until the correct board is read from
         skipUntil(file, boardNumber);
 
+        //Reads the board
+        board = readBoard(file);
+
+        //Closes the file
+        file.close();
+    }
+
+    /** CONSTRUCTOR
+     * Reads the board directly from its position in the file, without reading the boards before it
+     * @param index - the index of the boards file (see BoardIndex)
+     * @param boardNumber - which board should be read from
+     *                    - pre: >=1 && <=index.size()
+     * @throws IOException - propagates the error to the caller
+     */
+    public BoardGen(BoardIndex index, int boardNumber) throws IOException {
+        Scanner file = new Scanner(index.readBoard(boardNumber));
+        board = readBoard(file);
+        file.close();
+    }
+
+    /** CONSTRUCTOR
+     * Reads the board from a binary boards file, without parsing any text
+     * @param boards - the memory-mapped binary boards file (see BoardCompiler)
+     * @param boardNumber - which board should be read from
+     *                    - pre: >=1 && <=boards.size()
+     */
+    public BoardGen(CompiledBoards boards, int boardNumber) {
+        board = boards.getBoard(boardNumber);
+    }
+
+    /**
+     * Parses the text of a single board (e.g. from BoardIndex.readBoard or a streamed file)
+     * @param text - the board, in the boards file format
+     * @return the board array
+     */
+    public static int[] parse(String text) {
+        try (Scanner file = new Scanner(text)) {
+            return readBoard(file);
+        }
+    }
+
+    /**
+     * Reads a single board, starting at its tileNumber line
+     * @param file - the file Scanner
+     * @return the board array
+     */
+    private static int[] readBoard(Scanner file) {
         //Receives the number of tiles
         int tileNumber = file.nextInt(); file.nextLine(); //Pre: >=10 && <=150
 
         //Creates the board (array index 0 = tile 1)
-        board = new int[tileNumber];
+        int[] board = new int[tileNumber];
 
         //Populates the board
         populateBird(board); //Pre: every BIRD_MULT tiles - doesn't read from file
         populatePenalty(file,board); //Pre: qty >=1 && <=(tileNumber/3); tile >=2 && <= tileNumber-1
         populateFall(file,board); //Pre: qty >=1 && <=(tileNumber/3); tile >=2 && <= tileNumber-1
+        return board;
+    }
 
-        //Closes the file
+    /**
+     * Reads a board without creating an array with every tile (see SparseBoard)
+     * Used for huge boards, where only a small fraction of the tiles are special
+     * @param path - the path of the boards file
+     *             - pre: file exists and is in the correct format
+     * @param boardNumber - which board should be read from
+     *                    - pre: >=1
+     * @return the sparse board
+     * @throws FileNotFoundException - propagates the error to the caller
+     */
+    public static SparseBoard readSparse(String path, int boardNumber)
+            throws FileNotFoundException {
+        Scanner file = new Scanner(new FileReader(path));
+        skipUntil(file, boardNumber);
+
+        int tileNumber = file.nextInt(); file.nextLine(); //Pre: >=10
+        int penaltyNumber = file.nextInt(); file.nextLine();
+        int[] positions = new int[penaltyNumber];
+        int[] types = new int[penaltyNumber];
+        int count = 0;
+        for (int i=0; i<penaltyNumber; i++) { //same format as populatePenalty
+            positions[count] = file.nextInt()-1;
+            types[count++] = file.nextInt() * -1;
+            file.nextLine();
+        }
+        int fallNumber = file.nextInt(); file.nextLine();
+        positions = Arrays.copyOf(positions, penaltyNumber + fallNumber);
+        types = Arrays.copyOf(types, penaltyNumber + fallNumber);
+        for (int i=0; i<fallNumber; i++) { //same format as populateFall
+            int position = file.nextInt()-1;
+            int type = fallType(file.nextLine().trim());
+            if (type != 0) {positions[count] = position; types[count++] = type;}
+        }
         file.close();
+        return new SparseBoard(tileNumber, positions, types, count);
+    }
+
+    /**
+     * @param type - the name of a fall tile's subtype
+     * @return the tile code of the subtype, 0 if it is unknown
+     */
+    private static int fallType(String type) {
+        switch (type) {
+            case FALL_CRAB: return INT_FALL_CRAB;
+            case FALL_HELL: return INT_FALL_HELL;
+            case FALL_DEATH: return INT_FALL_DEATH;
+            default: return 0;
+        }
     }
 
     /**
@@ -62,7 +158,7 @@ public class BoardGen {
      * @param boardNumber - the number of the correct board
      *                    - Pre: >0
      */
-    private void skipUntil(Scanner in, int boardNumber) {
+    private static void skipUntil(Scanner in, int boardNumber) {
         for (int i=1; i<boardNumber; i++) { //doesn't execute when boardNumber == 1
             in.nextLine(); //skips the line with the tileNumber of incorrect board
             skipLines(in,in.nextInt()); //skips N+1 lines where N == number of penalty tiles
@@ -77,7 +173,7 @@ public class BoardGen {
      * @param lines - how many lines to skip
      *              - Pre: lines > 0
      */
-    private void skipLines(Scanner in, int lines) {
+    private static void skipLines(Scanner in, int lines) {
         for (int i=0; i<=lines; i++) {in.nextLine();}
     }
 
@@ -0,0 +1,264 @@
+/** BOARDGENERATOR CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Generates random valid boards and writes them in the boards file format (stress corpora)
+ * Every board follows the BoardGen preconditions: between 1 and tileNumber/3 penalty tiles and
+ * fall tiles, all of them on different tiles between 2 and tileNumber-1, none on a bird tile
+ * Boards are generated in fixed-size chunks on every core, each chunk with its own random
+ * generator seeded from the seed and the chunk number (the file only depends on the seed and the
+ * sizes, never on the number of threads). Each chunk is encoded straight into bytes and chunks are
+ * written in order as soon as they are ready, with a bounded number of chunks (of a bounded size,
+ * fewer boards per chunk for larger boards) in memory
+ * Usage: BoardGenerator [boards] [output file] [min tiles] [max tiles] [distribution] [seed]
+ *   [threads]
+ * Distributions of the number of tiles: uniform, log (log-uniform: as many boards with 10-100
+ * tiles as with 100-1000)
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BoardGenerator {
+    //Constants
+    private static final int CHUNK = 4096; //most boards per chunk (one random generator each)
+    private static final int CHUNK_BYTES = 1 << 22; //fewer boards per chunk if they're larger
+    private static final int BYTES_PER_TILE = 8; //longest text of a board, per tile
+    private static final int CHUNKS_PER_THREAD = 4; //chunks in memory per thread
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L; //spreads chunk numbers over seeds
+    private static final int MIN_TILES = 10; //see BoardGen
+    private static final int MAX_PENALTY_TURNS = 4; //penalties are between 1 and 4 turns
+    public static final String UNIFORM = "uniform";
+    public static final String LOG_UNIFORM = "log";
+    private static final byte[][] FALL_TYPES = {OutputWriter.fragment(" crab"),
+            OutputWriter.fragment(" hell"), OutputWriter.fragment(" death")};
+
+    //Instance variables
+    private final int minTiles;
+    private final int maxTiles;
+    private final boolean logUniform; //distribution of the number of tiles
+    private final long seed;
+    private final int chunk; //boards per chunk
+
+    /** MAIN
+     * Generates the boards and prints how long it took
+     * @throws IOException - if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        long boards = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String path = args.length > 1 ? args[1] : "generated.txt";
+        int minTiles = args.length > 2 ? Integer.parseInt(args[2]) : MIN_TILES;
+        int maxTiles = args.length > 3 ? Integer.parseInt(args[3]) : 150;
+        String distribution = args.length > 4 ? args[4] : UNIFORM;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+        int threads = args.length > 6 ? Integer.parseInt(args[6])
+                : Runtime.getRuntime().availableProcessors();
+
+        BoardGenerator generator = new BoardGenerator(minTiles, maxTiles, distribution, seed);
+        long start = System.nanoTime();
+        long bytes = generator.write(path, boards, threads);
+        long time = System.nanoTime() - start;
+        System.out.printf("Wrote %d boards (%d MB) to %s in %d ms on %d threads"
+                + " (%.0f boards/s, %.0f MB/s)\n", boards, bytes >> 20, path, time / 1_000_000,
+                threads, boards * 1e9 / time, bytes * 1e9 / time / (1 << 20));
+    }
+
+    /** Constructor
+     * @param minTiles - fewest tiles of a board
+     *                 - pre: >=10
+     * @param maxTiles - most tiles of a board
+     *                 - pre: >=minTiles
+     * @param distribution - distribution of the number of tiles (UNIFORM or LOG_UNIFORM)
+     * @param seed - the generation seed
+     * @throws IllegalArgumentException - if the sizes or the distribution are invalid
+     */
+    public BoardGenerator(int minTiles, int maxTiles, String distribution, long seed) {
+        if (minTiles < MIN_TILES || maxTiles < minTiles) {
+            throw new IllegalArgumentException("Invalid board sizes: " + minTiles + "-" + maxTiles);
+        }
+        if (!distribution.equals(UNIFORM) && !distribution.equals(LOG_UNIFORM)) {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        this.minTiles = minTiles;
+        this.maxTiles = maxTiles;
+        this.logUniform = distribution.equals(LOG_UNIFORM);
+        this.seed = seed;
+        long fitting = CHUNK_BYTES / ((long) maxTiles * BYTES_PER_TILE); //largest boards per chunk
+        this.chunk = (int) Math.max(1, Math.min(CHUNK, fitting));
+    }
+
+    //Methods
+    /**
+     * Generates the boards on a thread pool and writes them to a file, in order
+     * @param path - the output file (replaced)
+     * @param boards - how many boards to generate
+     * @param threads - how many threads generate boards at the same time
+     * @return number of bytes written
+     * @throws IOException - propagates file errors to the caller
+     */
+    public long write(String path, long boards, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>(); //chunks in order
+        long chunks = (boards + chunk - 1) / chunk, submitted = 0, bytes = 0;
+        try (FileChannel out = new FileOutputStream(path).getChannel()) {
+            while (submitted < chunks || !pending.isEmpty()) {
+                while (submitted < chunks && pending.size() < threads * CHUNKS_PER_THREAD) {
+                    long number = submitted++;
+                    int size = (int) Math.min(chunk, boards - number * chunk);
+                    pending.add(pool.submit(() -> generateChunk(number, size)));
+                }
+                ByteBuffer text = pending.remove().get();
+                bytes += text.remaining();
+                while (text.hasRemaining()) {out.write(text);}
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating boards", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Board generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return bytes;
+    }
+
+    /**
+     * Generates one chunk of boards with its own random generator
+     * @param number - the chunk number
+     * @param boards - how many boards in the chunk
+     * @return the boards, in the boards file format
+     */
+    ByteBuffer generateChunk(long number, int boards) {
+        SplittableRandom random = new SplittableRandom(seed ^ (number * SEED_MIX));
+        TextBuffer text = new TextBuffer();
+        //Free tiles of the largest board, in order: 2..maxTiles-1 (tile numbers of the file)
+        //except the bird tiles; the free tiles of any board are a prefix of this array
+        int[] tiles = new int[maxTiles];
+        int free = 0;
+        for (int tile=2; tile<maxTiles; tile++) {
+            if (tile % BoardGen.BIRD_MULT != 0) {tiles[free++] = tile;}
+        }
+        int[] swaps = new int[2 * (maxTiles / 3)];
+        int[] special = new int[swaps.length];
+        for (int i=0; i<boards; i++) {
+            generateBoard(nextTileNumber(random), random, tiles, swaps, special, text);
+        }
+        return text.toByteBuffer();
+    }
+
+    /**
+     * @param random - the random generator
+     * @return the number of tiles of the next board, following the distribution
+     */
+    private int nextTileNumber(SplittableRandom random) {
+        if (!logUniform) {return minTiles + random.nextInt(maxTiles - minTiles + 1);}
+        double low = Math.log(minTiles), high = Math.log(maxTiles + 1.0);
+        double log = low + random.nextDouble() * (high - low);
+        return Math.min((int) Math.exp(log), maxTiles);
+    }
+
+    /**
+     * Generates one board and appends it in the boards file format
+     * The special tiles are drawn without repetition (partial shuffle) from the tiles that can
+     * hold them, so they never clash with each other or with the bird tiles
+     * @param tileNumber - number of tiles
+     * @param random - the random generator
+     * @param tiles - the free tiles of the largest board, in order (restored before returning)
+     * @param swaps - work array, with room for every special tile
+     * @param special - work array, with room for every special tile
+     * @param text - where the board is appended
+     */
+    private static void generateBoard(int tileNumber, SplittableRandom random, int[] tiles,
+                                      int[] swaps, int[] special, TextBuffer text) {
+        //Tiles 2..tileNumber-1, without the birds
+        int free = tileNumber - 2 - (tileNumber - 1) / BoardGen.BIRD_MULT;
+        int penalties = 1 + random.nextInt(tileNumber / 3);
+        int falls = 1 + random.nextInt(tileNumber / 3);
+        int specials = penalties + falls;
+        for (int i=0; i<specials; i++) { //i-th special tile
+            int j = i + random.nextInt(free - i);
+            swaps[i] = j;
+            int swap = tiles[i]; tiles[i] = tiles[j]; tiles[j] = swap;
+        }
+        //The special tiles are written in order, from a copy (the shuffle is undone below)
+        System.arraycopy(tiles, 0, special, 0, specials);
+        Arrays.sort(special, 0, penalties);
+        Arrays.sort(special, penalties, specials);
+        for (int i=specials-1; i>=0; i--) {
+            int j = swaps[i];
+            int swap = tiles[i]; tiles[i] = tiles[j]; tiles[j] = swap;
+        }
+
+        text.appendInt(tileNumber); text.endLine();
+        text.appendInt(penalties); text.endLine();
+        for (int i=0; i<penalties; i++) {
+            text.appendInt(special[i]); text.append((byte) ' ');
+            text.appendInt(1 + random.nextInt(MAX_PENALTY_TURNS)); text.endLine();
+        }
+        text.appendInt(falls); text.endLine();
+        for (int i=penalties; i<specials; i++) {
+            text.appendInt(special[i]); text.append(FALL_TYPES[random.nextInt(FALL_TYPES.length)]);
+            text.endLine();
+        }
+    }
+
+    /** TEXTBUFFER CLASS
+     * Growable ASCII buffer, with integers encoded in place (no Strings per line)
+     */
+    private static class TextBuffer {
+        private byte[] bytes = new byte[1 << 16];
+        private int length;
+
+        /**
+         * Makes room for more bytes
+         * @param more - bytes about to be appended
+         */
+        private void ensure(int more) {
+            if (length + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + more));
+            }
+        }
+
+        void append(byte b) {
+            ensure(1);
+            bytes[length++] = b;
+        }
+
+        void append(byte[] fragment) {
+            ensure(fragment.length);
+            System.arraycopy(fragment, 0, bytes, length, fragment.length);
+            length += fragment.length;
+        }
+
+        /**
+         * Appends a non-negative integer in decimal
+         * @param value - pre: >=0
+         */
+        void appendInt(int value) {
+            ensure(10);
+            int digits = 1;
+            for (int rest=value/10; rest>0; rest/=10) {digits++;}
+            for (int i=length+digits-1; i>=length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        void endLine() {
+            append((byte) '\n');
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+}
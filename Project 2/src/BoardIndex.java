@@ -0,0 +1,341 @@
+/** BOARDINDEX CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Random-access index of a boards file (board number -> byte offset and length)
+ * The index is built with a single pass over the boards file and persisted next to it, so that
+ * any board can later be read with a single seek instead of rescanning every board before it
+ * The index also keeps a digest of each board's text (the first 64 bits of its SHA-256), so that
+ * boards can be told apart by content without reading them again (see BoardCache)
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class BoardIndex {
+    //Constants
+    private static final String INDEX_EXTENSION = ".idx"; //index file = boards file + extension
+    private static final int INITIAL_CAPACITY = 64; //initial number of indexed boards
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int MAGIC = 0x47424958; //"GBIX", first bytes of every index file
+    private static final int VERSION = 2; //format of the index file (2: with digests)
+    //Header: magic, version, source length, source last modified, board count
+    private static final int HEADER_BYTES = 2*Integer.BYTES + 2*Long.BYTES + Integer.BYTES;
+    private static final int ENTRY_BYTES = 2*Long.BYTES + Integer.BYTES; //offset, length, digest
+
+    //Instance variables
+    private final String path; //path of the indexed boards file
+    private final long[] offsets; //offsets[i] == byte offset of board i+1
+    private final int[] lengths; //lengths[i] == byte length of board i+1
+    private final long[] digests; //digests[i] == digest of the text of board i+1
+    private final long sourceLength; //length of the boards file when it was indexed
+    private final long sourceModified; //last modification of the boards file when it was indexed
+
+    /** Constructor
+     * @param path - the path of the indexed boards file
+     * @param offsets - byte offset of each board
+     * @param lengths - byte length of each board
+     * @param digests - digest of the text of each board
+     * @param sourceLength - length of the boards file when it was indexed
+     * @param sourceModified - last modification of the boards file when it was indexed
+     */
+    private BoardIndex(String path, long[] offsets, int[] lengths, long[] digests,
+                       long sourceLength, long sourceModified) {
+        this.path = path;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.digests = digests;
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+    }
+
+    /**
+     * Loads the persisted index of a boards file
+     * The index is (re)built and persisted if it is missing, unreadable, of another version or
+     * not of the current boards file (whose length or last modification changed)
+     * @param path - the path of the boards file
+     *             - pre: file exists and is in the correct format
+     * @return the index of the boards file
+     * @throws IOException - propagates file errors to the caller
+     */
+    public static BoardIndex load(String path) throws IOException {
+        File source = new File(path);
+        File indexFile = new File(path + INDEX_EXTENSION);
+        if (!source.exists()) {throw new FileNotFoundException(path);}
+
+        if (indexFile.exists()) {
+            BoardIndex index = read(path, indexFile);
+            if (index != null) {return index;}
+        }
+        BoardIndex index = build(path);
+        index.write(indexFile);
+        return index;
+    }
+
+    /**
+     * Builds the index (and the digest of each board) with a single pass over the boards file
+     * @param path - the path of the boards file
+     *             - pre: file exists and is in the correct format
+     * @return the index of the boards file
+     * @throws IOException - propagates file errors to the caller
+     */
+    public static BoardIndex build(String path) throws IOException {
+        File source = new File(path);
+        long sourceLength = source.length();
+        long sourceModified = source.lastModified();
+        long[] offsets = new long[INITIAL_CAPACITY];
+        int[] lengths = new int[INITIAL_CAPACITY];
+        long[] digests = new long[INITIAL_CAPACITY];
+        int count = 0;
+
+        try (LineReader in = new LineReader(new FileInputStream(path))) {
+            while (in.skipBlank()) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                    digests = Arrays.copyOf(digests, count * 2);
+                }
+                long start = in.getOffset();
+                in.startDigest();
+                in.skipLines(1); //tileNumber line
+                in.skipLines(in.readLineInt()); //penalty tiles
+                in.skipLines(in.readLineInt()); //fall tiles
+                offsets[count] = start;
+                lengths[count] = (int) (in.getOffset() - start);
+                digests[count] = in.finishDigest();
+                count++;
+            }
+        }
+        return new BoardIndex(path, Arrays.copyOf(offsets, count), Arrays.copyOf(lengths, count),
+                Arrays.copyOf(digests, count), sourceLength, sourceModified);
+    }
+
+    /**
+     * @return a new digest of the algorithm used for board texts
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //every Java platform has SHA-256
+        }
+    }
+
+    /**
+     * @param bytes - a finished digest
+     * @return its first 64 bits
+     */
+    private static long firstLong(byte[] bytes) {
+        long value = 0;
+        for (int i=0; i<Long.BYTES; i++) {value = value << 8 | (bytes[i] & 0xFF);}
+        return value;
+    }
+
+    /**
+     * Reads a persisted index
+     * The header and every entry are checked before anything is allocated, so a stale, truncated
+     * or corrupted index is rebuilt instead of being trusted
+     * @param path - the path of the boards file
+     * @param indexFile - the persisted index file
+     * @return the persisted index, or null if it is unreadable, of another version or not of the
+     *         current boards file
+     */
+    private static BoardIndex read(String path, File indexFile) {
+        File source = new File(path);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {return null;}
+            long sourceLength = in.readLong();
+            long sourceModified = in.readLong();
+            if (sourceLength != source.length() || sourceModified != source.lastModified()) {
+                return null; //index of an older boards file
+            }
+            int count = in.readInt();
+            if (count < 0 || (long) count * ENTRY_BYTES != indexFile.length() - HEADER_BYTES) {
+                return null; //truncated or corrupted index
+            }
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            long[] digests = new long[count];
+            for (int i=0; i<count; i++) {
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                digests[i] = in.readLong();
+                if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > sourceLength) {
+                    return null; //board outside the boards file
+                }
+            }
+            return new BoardIndex(path, offsets, lengths, digests, sourceLength, sourceModified);
+        } catch (IOException e) {
+            return null; //unreadable index, will be rebuilt
+        }
+    }
+
+    /**
+     * Persists the index
+     * Format: magic, version, source length, source last modified, board count, then (offset,
+     * length, digest) per board
+     * @param indexFile - the index file to write
+     * @throws IOException - propagates file errors to the caller
+     */
+    private void write(File indexFile) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeInt(offsets.length);
+            for (int i=0; i<offsets.length; i++) {
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+                out.writeLong(digests[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the path of the indexed boards file
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if the boards file was not changed since it was indexed
+     */
+    public boolean isCurrent() {
+        File source = new File(path);
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    /**
+     * @return the number of boards in the file
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @param boardNumber - which board
+     *                    - pre: >=1 && <=size()
+     * @return the digest of the board's text, as it was when the file was indexed
+     */
+    public long getDigest(int boardNumber) {
+        return digests[boardNumber-1];
+    }
+
+    /**
+     * Reads the text of a single board with one seek
+     * @param boardNumber - which board should be read
+     *                    - pre: >=1 && <=size()
+     * @return the board text, in the boards file format
+     * @throws IOException - propagates file errors to the caller
+     */
+    public String readBoard(int boardNumber) throws IOException {
+        byte[] bytes = new byte[lengths[boardNumber-1]];
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            file.seek(offsets[boardNumber-1]);
+            file.readFully(bytes);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /** LINEREADER CLASS
+     * Buffered byte reader that keeps track of the current byte offset in the file, and digests
+     * the bytes it reads
+     */
+    private static class LineReader implements Closeable {
+        private final InputStream in;
+        private final MessageDigest digest; //bytes read since startDigest
+        private long offset; //offset of the next unread byte
+        private int peeked; //next byte, or -2 if none was peeked
+
+        /** Constructor
+         * @param in - the boards file stream
+         */
+        LineReader(InputStream in) {
+            this.in = new BufferedInputStream(in);
+            this.digest = newDigest();
+            this.offset = 0;
+            this.peeked = -2;
+        }
+
+        /**
+         * @return the next byte without consuming it (-1 at the end of the file)
+         */
+        private int peek() throws IOException {
+            if (peeked == -2) {peeked = in.read();}
+            return peeked;
+        }
+
+        /**
+         * @return the next byte (-1 at the end of the file)
+         */
+        private int read() throws IOException {
+            int b = peek();
+            if (b != -1) {peeked = -2; offset++; digest.update((byte) b);}
+            return b;
+        }
+
+        /**
+         * Starts digesting from the next unread byte
+         */
+        void startDigest() {
+            digest.reset();
+        }
+
+        /**
+         * @return the digest of the bytes read since startDigest
+         */
+        long finishDigest() {
+            return firstLong(digest.digest());
+        }
+
+        /**
+         * Skips whitespace before the next board
+         * @return true if there is anything left to read
+         */
+        boolean skipBlank() throws IOException {
+            while (peek() != -1 && Character.isWhitespace(peek())) {read();}
+            return peek() != -1;
+        }
+
+        /**
+         * Skips N lines (the last line of the file may not end with a line break)
+         * @param lines - how many lines to skip
+         */
+        void skipLines(int lines) throws IOException {
+            for (int i=0; i<lines; i++) {
+                int b = read();
+                while (b != '\n' && b != -1) {b = read();}
+            }
+        }
+
+        /**
+         * Reads the integer at the start of a line and skips the rest of the line
+         * @return the integer
+         */
+        int readLineInt() throws IOException {
+            while (peek() == ' ' || peek() == '\r' || peek() == '\n') {read();}
+            int value = 0;
+            while (peek() >= '0' && peek() <= '9') {value = value*10 + (read() - '0');}
+            skipLines(1);
+            return value;
+        }
+
+        /**
+         * @return the offset of the next unread byte
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/** BOARDVIEW INTERFACE
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Read-only view of a board, using the tile codes defined in the BoardGen class
+ * Views cannot be changed by the games reading them, so a single view can be shared by many games
+ */
+
+public interface BoardView {
+    /**
+     * @return the number of tiles of the board
+     */
+    int getTileNumber();
+
+    /**
+     * @param index - index of the requested tile (tile N == index N-1)
+     *              - pre: >=0 && <getTileNumber()
+     * @return the "type" of the requested tile (see BoardGen constants)
+     */
+    int getTile(int index);
+}
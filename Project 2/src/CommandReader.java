@@ -0,0 +1,328 @@
+/** COMMANDREADER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Reads the user's commands byte by byte from a reusable buffer
+ * Replaces Scanner in the command loop: commands are matched in place and dice are decoded directly
+ * into integers, so reading a command doesn't create any objects
+ * Follows the Scanner rules used by the Main class: a command is the next token (whitespace
+ * separated), its argument is the rest of the line without leading or trailing whitespace
+ */
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class CommandReader {
+    //Constants
+    private static final int BUFFER_SIZE = 1 << 16; //bytes read from the input at once
+    private static final int MAX_COMMAND = 16; //longest command that can be matched
+    private static final int ARG_SIZE = 64; //initial argument capacity (grows if needed)
+
+    //Instance variables
+    private final InputStream in;
+    private final Flushable output; //flushed before waiting for input (may be null)
+    private final byte[] buffer; //input bytes
+    private int position; //next unread byte in the buffer
+    private int limit; //number of valid bytes in the buffer
+    private final byte[] command; //bytes of the last command (up to MAX_COMMAND)
+    private int commandLength; //real length of the last command
+    private byte[] arg; //bytes of the last argument, trimmed
+    private int argLength;
+    private int dice1; //last decoded dice
+    private int dice2;
+
+    /** Constructor
+     * @param in - the user input
+     */
+    public CommandReader(InputStream in) {
+        this(in, null);
+    }
+
+    /** Constructor
+     * @param in - the user input
+     * @param output - buffered output to be flushed whenever the reader would wait for input,
+     *               so that the user always sees the answers to the commands already sent
+     */
+    public CommandReader(InputStream in, Flushable output) {
+        this.in = in;
+        this.output = output;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.command = new byte[MAX_COMMAND];
+        this.arg = new byte[ARG_SIZE];
+    }
+
+    //Methods
+    /**
+     * @return the next byte without consuming it, -1 at the end of the input
+     */
+    private int peek() {
+        if (position == limit) {
+            try {
+                if (output != null && in.available() == 0) {output.flush();}
+                limit = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {limit = 0; return -1;}
+        }
+        return buffer[position];
+    }
+
+    /**
+     * @param b - a byte
+     * @return true if Scanner treats the byte as a token delimiter
+     */
+    private static boolean isDelimiter(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Skips delimiters (including line breaks)
+     * @return false if the end of the input was reached
+     */
+    private boolean skipDelimiters() {
+        int b = peek();
+        while (b != -1 && isDelimiter(b)) {position++; b = peek();}
+        return b != -1;
+    }
+
+    /**
+     * Reads the next command and its argument
+     * @return false if there are no commands left
+     */
+    public boolean next() {
+        if (!skipDelimiters()) {return false;}
+
+        //Command: bytes until the next delimiter
+        commandLength = 0;
+        int b = peek();
+        while (b != -1 && !isDelimiter(b)) {
+            if (commandLength < MAX_COMMAND) {command[commandLength] = (byte) b;}
+            commandLength++;
+            position++;
+            b = peek();
+        }
+
+        //Argument: rest of the line, trimmed
+        argLength = 0;
+        int trimmedLength = 0;
+        while (b != -1 && b != '\n' && b != '\r') {
+            if (argLength > 0 || b > ' ') { //skips leading whitespace
+                if (argLength == arg.length) {arg = Arrays.copyOf(arg, argLength * 2);}
+                arg[argLength++] = (byte) b;
+                if (b > ' ') {trimmedLength = argLength;}
+            }
+            position++;
+            b = peek();
+        }
+        argLength = trimmedLength; //drops trailing whitespace
+        skipLineBreak(b);
+        return true;
+    }
+
+    /**
+     * Reads the next command and its argument from a buffer instead of the input (same rules as
+     * next()), for input that arrives in pieces (see NioGameServer)
+     * Only whole lines are read, straight from the buffer (which may be direct): a line that hasn't
+     * ended yet is left in the buffer, to be read again when the rest of it arrives
+     * @param input - received bytes, between its position and its limit; the position is moved
+     *              past the lines read (the command's line and the blank lines before it)
+     * @return false if the buffer has no whole line with a command
+     */
+    public boolean next(ByteBuffer input) {
+        int limit = input.limit();
+        while (true) {
+            int start = input.position(), end = start;
+            while (end < limit && input.get(end) != '\n' && input.get(end) != '\r') {end++;}
+            if (end == limit) {return false;} //the line hasn't ended yet
+
+            //Consumes the line break ("\r\n" split between two reads leaves a blank line)
+            int next = end + 1;
+            if (input.get(end) == '\r' && next < limit && input.get(next) == '\n') {next++;}
+            input.position(next);
+
+            int i = start;
+            while (i < end && isDelimiter(input.get(i))) {i++;}
+            if (i == end) {continue;} //blank line
+
+            //Command: bytes until the next delimiter
+            commandLength = 0;
+            while (i < end && !isDelimiter(input.get(i))) {
+                if (commandLength < MAX_COMMAND) {command[commandLength] = input.get(i);}
+                commandLength++;
+                i++;
+            }
+
+            //Argument: rest of the line, trimmed
+            argLength = 0;
+            int trimmedLength = 0;
+            for (; i<end; i++) {
+                int b = input.get(i);
+                if (argLength > 0 || b > ' ') { //skips leading whitespace
+                    if (argLength == arg.length) {arg = Arrays.copyOf(arg, argLength * 2);}
+                    arg[argLength++] = (byte) b;
+                    if (b > ' ') {trimmedLength = argLength;}
+                }
+            }
+            argLength = trimmedLength; //drops trailing whitespace
+            return true;
+        }
+    }
+
+    /**
+     * Consumes a line break ("\n", "\r" or "\r\n")
+     * @param b - the current byte
+     */
+    private void skipLineBreak(int b) {
+        if (b == '\r') {
+            position++;
+            if (peek() == '\n') {position++;}
+        } else if (b == '\n') {
+            position++;
+        }
+    }
+
+    /**
+     * Compares the last command with a command name
+     * @param name - the command name
+     * @return true if the last command is the named command
+     */
+    public boolean isCommand(String name) {
+        if (commandLength != name.length()) {return false;}
+        for (int i=0; i<commandLength; i++) {
+            if (command[i] != name.charAt(i)) {return false;}
+        }
+        return true;
+    }
+
+    /**
+     * @return the last command as text, null if it's longer than any command that can be matched
+     */
+    public String getCommand() {
+        if (commandLength > MAX_COMMAND) {return null;}
+        return new String(command, 0, commandLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the length of the last argument, in bytes
+     */
+    public int getArgLength() {
+        return argLength;
+    }
+
+    /**
+     * @param i - index of the requested character
+     *          - pre: >=0 && <getArgLength()
+     * @return the requested character of the last argument
+     */
+    public char getArgChar(int i) {
+        return (char) (arg[i] & 0xFF);
+    }
+
+    /**
+     * @return the bytes of the last argument (UTF-8), up to getArgLength(); the array is reused
+     *         by the next command, so it must not be kept or changed
+     */
+    public byte[] getArgBytes() {
+        return arg;
+    }
+
+    /**
+     * @return the last argument as text (UTF-8), e.g. a player id
+     */
+    public String getArg() {
+        return new String(arg, 0, argLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the last argument as dice values, the same way Main used to split it:
+     * integers separated by single spaces, only the first two are used
+     * pre: argument == at least 2 integers separated by spaces
+     * @throws NumberFormatException - if the argument isn't in that format
+     */
+    public void decodeDice() {
+        int count = 0, i = 0;
+        while (i < argLength) {
+            boolean negative = false;
+            if (arg[i] == '-' || arg[i] == '+') {negative = arg[i] == '-'; i++;}
+            int start = i, value = 0;
+            while (i < argLength && arg[i] >= '0' && arg[i] <= '9') {
+                value = value*10 + (arg[i++] - '0');
+            }
+            if (i == start || (i < argLength && arg[i] != ' ')) {
+                throw new NumberFormatException("Invalid dice argument");
+            }
+            if (negative) {value = -value;}
+            if (count == 0) {dice1 = value;} else if (count == 1) {dice2 = value;}
+            count++;
+            i++; //skips the space
+        }
+        if (count < 2) {throw new NumberFormatException("Invalid dice argument");}
+    }
+
+    /**
+     * @return the first decoded dice value (see decodeDice)
+     */
+    public int getDice1() {
+        return dice1;
+    }
+
+    /**
+     * @return the second decoded dice value (see decodeDice)
+     */
+    public int getDice2() {
+        return dice2;
+    }
+
+    /**
+     * Reads the next token (used for the input header, not for commands)
+     * @return the token
+     * @throws NoSuchElementException - if there are no tokens left
+     */
+    public String nextToken() {
+        if (!skipDelimiters()) {throw new NoSuchElementException();}
+        StringBuilder token = new StringBuilder();
+        int b = peek();
+        while (b != -1 && !isDelimiter(b)) {
+            token.append((char) (b & 0xFF));
+            position++;
+            b = peek();
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads the next token as an integer (used for the input header, not for commands)
+     * @return the integer
+     * @throws NumberFormatException - if the token isn't an integer
+     */
+    public long nextLong() {
+        return Long.parseLong(nextToken());
+    }
+
+    /**
+     * Reads the next token as an integer (used for the input header, not for commands)
+     * @return the integer
+     * @throws NumberFormatException - if the token isn't an integer
+     */
+    public int nextInt() {
+        return Integer.parseInt(nextToken());
+    }
+
+    /**
+     * Skips the rest of the current line
+     */
+    public void nextLine() {
+        int b = peek();
+        while (b != -1 && b != '\n' && b != '\r') {position++; b = peek();}
+        skipLineBreak(b);
+    }
+}
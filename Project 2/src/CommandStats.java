@@ -0,0 +1,63 @@
+/** COMMANDSTATS CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Latency of each command type of the interpreter (see Main.executeCmdLoop)
+ * Each interpreter has its own statistics, so they are never shared between threads
+ */
+
+public class CommandStats {
+    //Constants
+    //Recorded commands, in the order they are printed
+    private static final String[] COMMANDS =
+            {"dice", "ranking", "square", "status", "player", "odds"};
+
+    //Output messages (pre-encoded, see OutputWriter)
+    private static final byte[] MSG_COUNT = OutputWriter.fragment(": count ");
+    private static final byte[] MSG_MEAN = OutputWriter.fragment("; mean ");
+    private static final byte[] MSG_P50 = OutputWriter.fragment(" ns; p50 ");
+    private static final byte[] MSG_P99 = OutputWriter.fragment(" ns; p99 ");
+    private static final byte[] MSG_P999 = OutputWriter.fragment(" ns; p999 ");
+    private static final byte[] MSG_MAX = OutputWriter.fragment(" ns; max ");
+    private static final byte[] MSG_NS = OutputWriter.fragment(" ns");
+
+    //Instance variables
+    private final LatencyHistogram[] histograms; //histograms[i] == latencies of COMMANDS[i]
+
+    /** Constructor
+     * Creates empty statistics
+     */
+    public CommandStats() {
+        histograms = new LatencyHistogram[COMMANDS.length];
+        for (int i=0; i<COMMANDS.length; i++) {histograms[i] = new LatencyHistogram();}
+    }
+
+    //Methods
+    /**
+     * Records the latency of the command last read by the reader (other commands are ignored)
+     * @param in - user input reader, holding the command
+     * @param nanos - how long the command took
+     */
+    public void record(CommandReader in, long nanos) {
+        for (int i=0; i<COMMANDS.length; i++) {
+            if (in.isCommand(COMMANDS[i])) {histograms[i].record(nanos); return;}
+        }
+    }
+
+    /**
+     * Prints one line per command type: count, mean, p50, p99, p999 and max latency
+     * @param out - where the statistics are printed
+     */
+    public void print(OutputWriter out) {
+        for (int i=0; i<COMMANDS.length; i++) {
+            LatencyHistogram histogram = histograms[i];
+            out.write(COMMANDS[i]);
+            out.write(MSG_COUNT); out.write(histogram.getCount());
+            out.write(MSG_MEAN); out.write(histogram.getMean());
+            out.write(MSG_P50); out.write(histogram.getPercentile(50));
+            out.write(MSG_P99); out.write(histogram.getPercentile(99));
+            out.write(MSG_P999); out.write(histogram.getPercentile(99.9));
+            out.write(MSG_MAX); out.write(histogram.getMax());
+            out.writeLine(MSG_NS);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/** COMPILEDBOARDS CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Read-only view of a binary boards file written by the BoardCompiler class
+ * The file is memory-mapped once; reading a board only decodes its packed tiles
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class CompiledBoards {
+    //Instance variables
+    private final MappedByteBuffer buffer; //the mapped binary file
+    private final int size; //number of boards
+
+    /** Constructor
+     * Maps the binary file and checks its header
+     * @param path - the path of the binary boards file
+     *             - pre: file was written by BoardCompiler
+     * @throws IOException - if the file cannot be read or is not a binary boards file
+     */
+    public CompiledBoards(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < BoardCompiler.HEADER_SIZE
+                || buffer.getInt(0) != BoardCompiler.MAGIC
+                || buffer.getInt(4) != BoardCompiler.VERSION) {
+            throw new IOException("Not a binary boards file: " + path);
+        }
+        size = buffer.getInt(8);
+    }
+
+    /**
+     * @return the number of boards in the file
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param boardNumber - which board
+     *                    - pre: >=1 && <=size()
+     * @return the number of tiles of the board
+     */
+    public int getTileNumber(int boardNumber) {
+        return buffer.getInt(entry(boardNumber) + 4);
+    }
+
+    /**
+     * Decodes a board into the array format generated by BoardGen
+     * @param boardNumber - which board
+     *                    - pre: >=1 && <=size()
+     * @return the board array
+     */
+    public int[] getBoard(int boardNumber) {
+        int entry = entry(boardNumber);
+        int offset = buffer.getInt(entry);
+        int[] board = new int[buffer.getInt(entry + 4)];
+        for (int i=0; i<board.length; i++) {
+            board[i] = buffer.get(offset + i); //sign extension keeps penalties negative
+        }
+        return board;
+    }
+
+    /**
+     * @param boardNumber - which board
+     * @return position of the board's entry in the offset table
+     */
+    private int entry(int boardNumber) {
+        return BoardCompiler.HEADER_SIZE + (boardNumber-1) * BoardCompiler.ENTRY_SIZE;
+    }
+}
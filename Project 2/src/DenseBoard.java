@@ -0,0 +1,27 @@
+/** DENSEBOARD CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Board view backed by one array position per tile (the format generated by BoardGen)
+ */
+
+public class DenseBoard implements BoardView {
+    private final int[] board; //tile array, never handed out
+
+    /** Constructor
+     * @param board - the board array
+     *              - pre: must not be changed by the caller after the view is created
+     */
+    public DenseBoard(int[] board) {
+        this.board = board;
+    }
+
+    @Override
+    public int getTileNumber() {
+        return board.length;
+    }
+
+    @Override
+    public int getTile(int index) {
+        return board[index];
+    }
+}
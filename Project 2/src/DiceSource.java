@@ -0,0 +1,26 @@
+/** DICESOURCE INTERFACE
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Where the dice of automated games come from, pulled one roll at a time (see
+ * Gameplay.playNextTurn): a seeded random generator (RandomDice) or a recorded stream of rolls
+ * (RecordedDice), so no dice commands have to be formatted and parsed as text
+ * Like CommandReader.decodeDice, a roll is read once and its two values are then asked for
+ */
+
+public interface DiceSource {
+    /**
+     * Rolls both dice
+     * @return false if the source has no rolls left (the dice values are then undefined)
+     */
+    boolean next();
+
+    /**
+     * @return the first dice value of the last roll (between 1 and 6)
+     */
+    int getDice1();
+
+    /**
+     * @return the second dice value of the last roll (between 1 and 6)
+     */
+    int getDice2();
+}
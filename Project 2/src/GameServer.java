@@ -0,0 +1,163 @@
+/** GAMESERVER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Serves the command protocol of the Main class to many clients over TCP
+ * Each connection runs on its own thread (a virtual thread when the JVM supports them)
+ *
+ * Protocol: a client either starts a new session by sending the player order and board number
+ * lines read by Main, or joins an existing session with "join <id>". The server replies with
+ * "Session <id>" and then runs the usual commands; "exit" retires the session.
+ * A client that disconnects without "exit" leaves its session open to be joined again.
+ */
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GameServer implements Closeable {
+    //Constants
+    private static final int DEFAULT_PORT = 4242;
+    private static final int BOARD_CACHE_SIZE = 64;
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final String CMD_JOIN = "join";
+    private static final byte[] MSG_SESSION = OutputWriter.fragment("Session ");
+    private static final byte[] MSG_NONEXISTENT_SESSION =
+            OutputWriter.fragment("Nonexistent session");
+
+    //Instance variables
+    private final SessionManager sessions;
+    private final ServerSocket server;
+    private final ExecutorService connections; //one thread per connection
+    private final Thread acceptor; //accepts new connections
+
+    /** MAIN
+     * Usage: GameServer [port]
+     * @throws IOException - if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(new SessionManager(BOARD_FILE_NAME, BOARD_CACHE_SIZE),
+                InetAddress.getByName("0.0.0.0"), port);
+        System.out.printf("Listening on port %d\n", server.getPort());
+    }
+
+    /** Constructor
+     * Opens the port and starts accepting connections
+     * @param sessions - the sessions served
+     * @param address - local address to listen on
+     * @param port - the port (0 == any free port)
+     * @throws IOException - if the port cannot be opened
+     */
+    public GameServer(SessionManager sessions, InetAddress address, int port) throws IOException {
+        this.sessions = sessions;
+        this.server = new ServerSocket(port, 0, address);
+        this.connections = newThreadPerTaskExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "GameServer-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Creates an executor that runs every task on a new thread
+     * Uses virtual threads if the JVM has them (Java 21+), the project itself targets Java 17
+     * @return the executor
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return the sessions served
+     */
+    public SessionManager getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Accepts connections until the server is closed
+     */
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true); //replies are single lines, don't wait to batch them
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                //server closed
+            }
+        }
+    }
+
+    /**
+     * Runs the command protocol for one connection
+     * @param socket - the client connection
+     */
+    private void serve(Socket socket) {
+        try (Socket client = socket) {
+            OutputWriter out = new OutputWriter(client.getOutputStream(), true); //flushes lines
+            CommandReader in = new CommandReader(client.getInputStream());
+            long id = openSession(in, out);
+            if (id == -1) {return;}
+            Gameplay game = sessions.get(id);
+
+            boolean running = true;
+            while (running && in.next()) {
+                synchronized (game) { //joined clients may share the game
+                    running = Main.executeCmd(game, in, out);
+                }
+            }
+            if (!running) {sessions.retire(id);} //exit command
+        } catch (IOException | RuntimeException e) {
+            //client disconnected or sent a malformed command; its session stays open
+        }
+    }
+
+    /**
+     * Reads the first lines of a connection and creates or joins a session
+     * @param in - client input
+     * @param out - client output
+     * @return the id of the session, or -1 if the requested session doesn't exist
+     * @throws IOException - propagates file errors
+     */
+    private long openSession(CommandReader in, OutputWriter out) throws IOException {
+        String first = in.nextToken();
+        long id;
+        if (first.equals(CMD_JOIN)) {
+            id = in.nextLong(); in.nextLine();
+            if (sessions.get(id) == null) {
+                out.writeLine(MSG_NONEXISTENT_SESSION);
+                return -1;
+            }
+        } else {
+            in.nextLine(); //first == player order
+            int boardNumber = in.nextInt(); in.nextLine();
+            id = sessions.create(first, boardNumber);
+        }
+        out.write(MSG_SESSION); out.write(id); out.endLine();
+        return id;
+    }
+
+    /**
+     * Stops accepting connections
+     * Connections already open are served until they end
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdown();
+    }
+}
@@ -0,0 +1,176 @@
+/** GAMESERVERLOAD CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Throughput test for the GameServer class over loopback
+ * Creates N sessions (all kept open at the same time), then plays every session through a
+ * "join" connection and reports sessions per second and the latency of each command
+ * Usage: GameServerLoad [sessions] [concurrent clients] [rounds per session]
+ */
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameServerLoad {
+    //Constants
+    private static final int DEFAULT_SESSIONS = 10_000;
+    private static final int DEFAULT_CLIENTS = 64;
+    private static final int DEFAULT_ROUNDS = 20;
+    private static final String PLAYER_ORDER = "ABCD";
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final int BOARDS = 3; //boards used, round-robin
+
+    /** MAIN
+     * @throws Exception - any failure aborts the test
+     */
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (GameServer server = new GameServer(new SessionManager(BOARD_FILE_NAME, BOARDS),
+                loopback, 0)) {
+            long[] ids = new long[sessions];
+
+            //Phase 1: create every session
+            long start = System.nanoTime();
+            runAll(sessions, clients, i -> ids[i] = createSession(loopback, server.getPort(), i));
+            long createTime = System.nanoTime() - start;
+            int open = server.getSessions().size();
+
+            //Phase 2: play every session until exit, timing each command
+            long[] latencies = new long[sessions * (rounds * 2 + 1)];
+            AtomicInteger next = new AtomicInteger();
+            start = System.nanoTime();
+            runAll(sessions, clients, i -> playSession(loopback, server.getPort(), ids[i], rounds,
+                    i, latencies, next));
+            long playTime = System.nanoTime() - start;
+
+            printReport(sessions, open, createTime, playTime,
+                    Arrays.copyOf(latencies, next.get()), server.getSessions().size());
+        }
+    }
+
+    /** SESSIONTASK INTERFACE
+     * One client task, identified by the session number
+     */
+    private interface SessionTask {
+        void run(int i) throws IOException;
+    }
+
+    /**
+     * Runs a task for every session with a fixed number of concurrent clients
+     * @param sessions - number of sessions
+     * @param clients - number of concurrent clients
+     * @param task - the task to run for each session
+     * @throws InterruptedException - if interrupted while waiting
+     */
+    private static void runAll(int sessions, int clients, SessionTask task)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicInteger failures = new AtomicInteger();
+        for (int i=0; i<sessions; i++) {
+            int session = i;
+            pool.execute(() -> {
+                try {task.run(session);}
+                catch (IOException e) {failures.incrementAndGet();}
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        if (failures.get() > 0) {System.out.printf("%d failed clients\n", failures.get());}
+    }
+
+    /**
+     * Creates a session and disconnects without exiting, so that it stays open
+     * @return the session id
+     */
+    private static long createSession(InetAddress address, int port, int i) throws IOException {
+        try (Socket socket = new Socket(address, port)) {
+            BufferedReader in = reader(socket);
+            Writer out = writer(socket);
+            out.write(PLAYER_ORDER + "\n" + (i % BOARDS + 1) + "\n");
+            out.flush();
+            String reply = in.readLine(); //"Session <id>"
+            return Long.parseLong(reply.substring(reply.indexOf(' ') + 1));
+        }
+    }
+
+    /**
+     * Joins a session and plays a few rounds of "dice" + "player", then exits
+     * Records the latency of each round and of the "exit" command
+     */
+    private static void playSession(InetAddress address, int port, long id, int rounds, int i,
+                                    long[] latencies, AtomicInteger next) throws IOException {
+        try (Socket socket = new Socket(address, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = reader(socket);
+            Writer out = writer(socket);
+            out.write("join " + id + "\n");
+            out.flush();
+            in.readLine(); //"Session <id>"
+
+            boolean cupOver = false; //once the cup is over, "dice" prints a line of its own
+            for (int r=0; r<rounds; r++) {
+                int dice1 = (i + r) % 6 + 1, dice2 = (i * 7 + r * 3) % 6 + 1;
+                String commands = cupOver ? "player\n"
+                        : "dice " + dice1 + " " + dice2 + "\nplayer\n";
+                long start = System.nanoTime();
+                out.write(commands);
+                out.flush();
+                cupOver = !in.readLine().startsWith("Next to play");
+                latencies[next.getAndIncrement()] = System.nanoTime() - start;
+            }
+            long start = System.nanoTime();
+            out.write("exit\n");
+            out.flush();
+            in.readLine();
+            latencies[next.getAndIncrement()] = System.nanoTime() - start;
+        }
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+    }
+
+    private static Writer writer(Socket socket) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Prints the test results
+     */
+    private static void printReport(int sessions, int open, long createTime, long playTime,
+                                    long[] latencies, int left) {
+        Arrays.sort(latencies);
+        System.out.printf("Sessions created: %d in %d ms (%.0f sessions/s)\n",
+                sessions, createTime / 1_000_000, sessions * 1e9 / createTime);
+        System.out.printf("Sessions open at the same time: %d\n", open);
+        System.out.printf("Sessions played: %d in %d ms (%.0f sessions/s)\n",
+                sessions, playTime / 1_000_000, sessions * 1e9 / playTime);
+        System.out.printf("Commands timed: %d\n", latencies.length);
+        System.out.printf("Latency p50: %d us; p99: %d us; max: %d us\n",
+                percentile(latencies, 0.50) / 1000, percentile(latencies, 0.99) / 1000,
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000);
+        System.out.printf("Sessions left open: %d\n", left);
+    }
+
+    /**
+     * @param sorted - sorted values
+     * @param p - the percentile (0..1)
+     * @return the value at the percentile
+     */
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {return 0;}
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
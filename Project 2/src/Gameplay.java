@@ -3,27 +3,46 @@
  * @author Alexandre Cristóvão
  * Starts the game and manages the game state
  * Defines the format of the board, how many tiles and which are "special"
- * Defines 3 players and their playing order
+ * Defines the players and their playing order (any number, see PlayerRoster)
  * Updates the position of each player after each turn
+ * The ranking and the alive players are kept in sorted orders (see PlayerOrder), so no command
+ * has to go through every player and no turn creates objects
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class Gameplay {
     //Constants
-    private static final int BIRD_JUMP = 9; //How many tiles do players advance on a bird tile
+    //How many tiles do players advance on a bird tile (also used by TransitionTable's moves)
+    static final int BIRD_JUMP = 9;
     private static final int SPECIALDICE_LOW = 3; //Lowest dice value for special case
     private static final int SPECIALDICE_HIGH = 6; //Highest dice value for special case
 
 
     //Instance variables
-    private final int lastTile; //how many tiles //Pre: >=10 && <=150
-    private final int[] board; //tile array, saves each tile's "type"
+    private final int lastTile; //how many tiles //Pre: >=10 (huge boards: see SparseBoard)
+    private final BoardView board; //read-only tile view, saves each tile's "type"
+    private final TransitionTable moves; //precomputed moves, null if the board has none
     private final Player[] players; //players array in order
+    private final PlayerRoster roster; //id -> index lookup
+    private final TurnScheduler turns; //who plays next
     private final int size; //number of players //Pre: >=3 && <=10
     private int nextPlayer; //defines who plays next
     private boolean deathOccurred;
     private int turnNumber;
     private int alivePlayers;
     private boolean cupOver;
+    private final PlayerOrder ranked; //all players, sorted by ranking
+    private final PlayerOrder alive; //alive players, sorted by position and play order
+    private final int[] touched; //players who moved in this game (only they need a reset)
+    private final boolean[] isTouched; //isTouched[i] == players[i] is in touched
+    private int touchedCount;
+    private TurnJournal journal; //where every turn is recorded (null if not recorded)
 
     /** Constructor
      * Defines the inicial board state
@@ -33,32 +52,66 @@ public class Gameplay {
      * pre: playerOrder must have between 3 and 10 unique capital letters
      */
     public Gameplay(int[] board, String playerOrder) {
+        this(new DenseBoard(board), playerOrder);
+    }
+
+    /** Constructor
+     * Defines the inicial board state on a shared read-only board (see BoardCache)
+     * @param board - read-only view of the board's tiles
+     * @param playerOrder - string representing the players who'll play the game
+     * pre: board must be valid according to the specifications mentioned in the BoardGen class
+     * pre: playerOrder must have between 3 and 10 unique capital letters
+     */
+    public Gameplay(BoardView board, String playerOrder) {
+        this(board, PlayerRoster.of(playerOrder));
+    }
+
+    /** Constructor
+     * Defines the inicial board state with any roster of players
+     * @param board - read-only view of the board's tiles
+     * @param roster - the players who'll play the game, in order of play
+     * pre: board must be valid according to the specifications mentioned in the BoardGen class
+     * pre: roster must have at least 2 players
+     */
+    public Gameplay(BoardView board, PlayerRoster roster) {
         this.board = board;
-        lastTile = board.length-1;
+        this.roster = roster;
+        moves = board instanceof TransitionTable ? (TransitionTable) board : null;
+        lastTile = board.getTileNumber()-1;
 
         //Populates the player list in order of play and sets the first player to start
-        players = populatePlayers(playerOrder);
+        players = populatePlayers(roster);
+        turns = new TurnScheduler(players);
         nextPlayer = 0;
         size = players.length;
         alivePlayers = size;
         turnNumber = 0;
         cupOver = false;
+
+        //Orders are kept up to date on every change instead of being sorted on every query
+        //(a player is taken out of an order before changing and put back after)
+        ranked = new PlayerOrder(players, (p1, p2) -> p2.compareRank(p1)); //best first
+        alive = new PlayerOrder(players, Player::aliveCompare); //first to die first
+        for (Player player : players) {
+            ranked.add(player);
+            alive.add(player);
+        }
+        touched = new int[size];
+        isTouched = new boolean[size];
+        touchedCount = 0;
     }
 
     //Methods
     /**
      * Creates the player array
-     * @param playersString - string with each player's character in their playing order
-     *                      - Pre: 3-10 unique capital letters
+     * @param roster - the players' ids in their playing order
      * @return array of players
      */
-    private Player[] populatePlayers(String playersString) {
-        char[] playerOrder = playersString.toCharArray();
-        Player[] players = new Player[playerOrder.length];
-        for (int i=0; i<playerOrder.length; i++) {
-            char playerColor = playerOrder[i];
-            players[i] = new Player(playerColor, i);
-            }
+    private Player[] populatePlayers(PlayerRoster roster) {
+        Player[] players = new Player[roster.size()];
+        for (int i=0; i<players.length; i++) {
+            players[i] = new Player(roster.getId(i), i);
+        }
         return players;
     }
 
@@ -69,13 +122,48 @@ public class Gameplay {
      * @return -1 if no player found
      */
     public int searchPlayer(char searchColor) {
-        int i= players.length-1;
-        while ( i>=0 && searchColor != players[i].getColor() ) {
-            i--;
-        }
-        return i; //if not found ==> i=-1;
+        return roster.indexOf(String.valueOf(searchColor));
     }
 
+    /**
+     * Searches for a player by their id (hashed lookup)
+     * @param id - requested player's id
+     * @return index of the player in the players array, -1 if no player found
+     */
+    public int searchPlayer(String id) {
+        return roster.indexOf(id);
+    }
+
+    /**
+     * Searches for a player by the bytes of their id (hashed lookup, creates no objects)
+     * @param id - requested player's id, UTF-8
+     * @param length - length of the id
+     * @return index of the player in the players array, -1 if no player found
+     */
+    public int searchPlayer(byte[] id, int length) {
+        return roster.indexOf(id, length);
+    }
+
+    /**
+     * @return number of players
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of tiles of the board
+     */
+    public int getTileNumber() {
+        return lastTile+1;
+    }
+
+    /**
+     * @return the board of the game
+     */
+    public BoardView getBoard() {
+        return board;
+    }
 
     /** Player command
      * @return color of the next player to roll the dice
@@ -84,6 +172,29 @@ public class Gameplay {
         return players[nextPlayer].getColor();
     }
 
+    /** Player command
+     * @return id of the next player to roll the dice
+     */
+    public String getNextPlayerId() {
+        return players[nextPlayer].getId();
+    }
+
+    /**
+     * @return index of the next player to roll the dice in the players array
+     */
+    public int getNextPlayerIndex() {
+        return nextPlayer;
+    }
+
+    /**
+     * @param index - index of the requested player in the players array
+     *              - Pre: index >=0 && index < size
+     * @return id of the requested player
+     */
+    public String getPlayerId(int index) {
+        return players[index].getId();
+    }
+
     /** Square command
      * @param index - index of the requested player in the players array
      *              - Pre: index >=0 && index < size
@@ -102,6 +213,15 @@ public class Gameplay {
         return players[index].canRollDice();
     }
 
+    /**
+     * @param index - index of the requested player in the players array
+     *              - Pre: index >=0 && index < size
+     * @return how many more turns the requested player has to skip
+     */
+    public int getPlayerPenalty(int index) {
+        return players[index].getPenalty();
+    }
+
     /**
      * @param index - index of the requested player in the players array
      *              - Pre: index >=0 && index < size
@@ -111,6 +231,27 @@ public class Gameplay {
         return players[index].getDeathOrder()!=0;
     }
 
+    /**
+     * @return number of players alive when the current game started
+     */
+    public int getAlivePlayers() {
+        return alivePlayers;
+    }
+
+    /**
+     * @return turns played in the current game (instant wins are only allowed in the first ones)
+     */
+    public int getTurnNumber() {
+        return turnNumber;
+    }
+
+    /**
+     * @return boolean - did a player already die in the current game?
+     */
+    public boolean isDeathOccurred() {
+        return deathOccurred;
+    }
+
     /**
      * Rolls the dice and processes one turn
      * @param diceLow - integer representing thrown dices' lowest value
@@ -131,10 +272,98 @@ public class Gameplay {
             turnNumber++;
         }
 
-        player.movePlayer(nextPosition);
+        movePlayer(player, nextPosition);
 
         //Post Movement
         checkForWinner(nextPosition, player);
+
+        if (journal != null) {journal.append(this, diceLow, diceHigh);}
+    }
+
+    /**
+     * Rolls the dice of a dice source and processes one turn
+     * pre: !isCupOver()
+     * @param dice - where the dice come from
+     * @return false if the source had no rolls left (no turn was processed)
+     */
+    public boolean playNextTurn(DiceSource dice) {
+        if (!dice.next()) {return false;}
+        int dice1 = dice.getDice1(), dice2 = dice.getDice2();
+        if (dice1 < dice2) {processNextTurn(dice1, dice2);}
+        else {processNextTurn(dice2, dice1);}
+        return true;
+    }
+
+    /**
+     * Records every turn processed from now on (see TurnJournal)
+     * @param journal - the journal, null to stop recording
+     */
+    public void setJournal(TurnJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Saves the full game state (players, turn order and game flags)
+     * @param out - where the state is written
+     * @throws IOException - propagates file errors to the caller
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (Player player : players) {
+            out.writeInt(player.getPosition());
+            out.writeInt(player.getPenalty());
+            out.writeInt(player.getScore());
+            out.writeInt(player.getDeathOrder());
+        }
+        out.writeInt(nextPlayer);
+        out.writeInt(turnNumber);
+        out.writeInt(alivePlayers);
+        out.writeBoolean(deathOccurred);
+        out.writeBoolean(cupOver);
+    }
+
+    /**
+     * Restores a state saved by writeState
+     * pre: the game was just created, with the same board and players as the saved game
+     * @param in - where the state is read from
+     * @throws IOException - propagates file errors (or a different number of players) to the caller
+     */
+    public void readState(DataInputStream in) throws IOException {
+        if (in.readInt() != size) {throw new IOException("Saved state has other players");}
+        ranked.clear();
+        alive.clear();
+        for (Player player : players) {
+            player.restore(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            ranked.add(player);
+            if (player.getDeathOrder()==0) {alive.add(player);}
+            else {turns.remove(player.getPlayOrder());}
+            if (player.getPosition()!=0 || !player.canRollDice()) { //needs a reset after the game
+                isTouched[player.getPlayOrder()] = true;
+                touched[touchedCount++] = player.getPlayOrder();
+            }
+        }
+        nextPlayer = in.readInt();
+        turnNumber = in.readInt();
+        alivePlayers = in.readInt();
+        deathOccurred = in.readBoolean();
+        cupOver = in.readBoolean();
+    }
+
+    /**
+     * Copies the game (state, board and players), e.g. to play it on with other dice
+     * The copy isn't journaled
+     * @return the copy
+     */
+    public Gameplay copy() {
+        Gameplay copy = new Gameplay(board, roster);
+        try {
+            ByteArrayOutputStream state = new ByteArrayOutputStream();
+            writeState(new DataOutputStream(state));
+            copy.readState(new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //in-memory streams don't fail
+        }
+        return copy;
     }
 
     /** Returns the next valid position for the play
@@ -144,6 +373,7 @@ public class Gameplay {
      * @return the player's next position
      */
     private int nextValidPosition (Player player, int position, int diceResult) {
+        if (moves != null) {return nextPrecomputedPosition(player, position, diceResult);}
         int nextPosition = Math.min(position + diceResult, lastTile); //no out-of-bounds
         int type = getSquareType(nextPosition);
         if (type<0) {player.applyPenalty(type*(-1));} //penalty tile
@@ -155,31 +385,52 @@ public class Gameplay {
             case BoardGen.INT_FALL_HELL: //hell tile
                 return 0;
             case BoardGen.INT_FALL_DEATH: //death tile
-                if (!deathOccurred) {
-                    player.kill(size - alivePlayers);
-                    deathOccurred = true;
-                    if (alivePlayers == 2) { //if there were only 2 alive players left
-                        cupOver = true;
-                        int winner = searchPlayer(getWinner());
-                        players[winner].addPoint();
-                        alivePlayers--;
-                    }
-                }
+                applyDeath(player);
             default: return nextPosition;
         }
     }
 
+    /** Returns the next valid position for the play, using the board's precomputed moves
+     * Same rules as nextValidPosition, with the move read from the TransitionTable
+     * @param player - indicates current player
+     * @param position - indicates player's position
+     * @param diceResult - indicates total sum of dice thrown
+     * @return the player's next position
+     */
+    private int nextPrecomputedPosition(Player player, int position, int diceResult) {
+        int move = moves.getMove(position, diceResult);
+        int effect = TransitionTable.getEffect(move);
+        if (effect == TransitionTable.EFFECT_DEATH) {applyDeath(player);}
+        else if (effect != TransitionTable.EFFECT_NONE) {player.applyPenalty(effect);}
+        return TransitionTable.getLanding(move);
+    }
+
+    /** Death tile
+     * Kills the player if nobody died in this game yet; ends the cup if only 2 players were alive
+     * @param player - indicates current player
+     */
+    private void applyDeath(Player player) {
+        if (!deathOccurred) {
+            killPlayer(player);
+            deathOccurred = true;
+            if (alivePlayers == 2) { //if there were only 2 alive players left
+                cupOver = true;
+                addPoint(ranked.getFirst());
+                alivePlayers--;
+            }
+        }
+    }
+
     /** Checks if the move was a winning move
      * @param position - indicates player's position
      * @param player - indicates current player
      */
     private void checkForWinner(int position, Player player) {
         if (position == lastTile) {
-            player.addPoint();
+            addPoint(player);
 
             if (!deathOccurred) {
-                Player lastPlayer = aliveIt().next();
-                lastPlayer.kill(size - alivePlayers);
+                killPlayer(alive.getFirst()); //last player of the game
             }
 
             alivePlayers--;
@@ -192,53 +443,83 @@ public class Gameplay {
         }
     }
 
+    /**
+     * Moves a player and updates the ranking and alive orders
+     * @param player - the player to be moved
+     * @param position - the new position
+     */
+    private void movePlayer(Player player, int position) {
+        boolean isAlive = player.getDeathOrder()==0; //may have died in this turn
+        if (isAlive) {alive.remove(player);}
+        ranked.remove(player);
+        player.movePlayer(position);
+        ranked.add(player);
+        if (isAlive) {alive.add(player);}
+        if (!isTouched[player.getPlayOrder()]) {
+            isTouched[player.getPlayOrder()] = true;
+            touched[touchedCount++] = player.getPlayOrder();
+        }
+    }
+
+    /**
+     * Adds a point to a player and updates the ranking
+     * @param player - the winner
+     */
+    private void addPoint(Player player) {
+        ranked.remove(player);
+        player.addPoint();
+        ranked.add(player);
+    }
+
+    /**
+     * Kills a player and updates the ranking and alive orders
+     * @param player - the player to be killed
+     *               - pre: player is alive
+     */
+    private void killPlayer(Player player) {
+        ranked.remove(player);
+        alive.remove(player);
+        player.kill(size - alivePlayers);
+        ranked.add(player);
+        turns.remove(player.getPlayOrder());
+    }
+
     /**
      * @param square - index of the requested square
      * @return Returns the "type" of the requested square
      */
     private int getSquareType(int square) {
-        return board[square];
+        return board.getTile(square);
     }
 
     /**
      * Passes the turn to the next player
+     * Dead players are skipped and penalized players skip their turn, lowering their penalty
      */
     private void passTurn() {
-        nextPlayer++;
-        if (nextPlayer>= players.length) {nextPlayer=0;}
-        checkTurnSkip(); //checks if next player has a penalty
-    }
-
-    /**
-     * Checks if the next player is fined
-     * Skips their turn if they are and lowers their penalty by 1
-     */
-    private void checkTurnSkip() {
-        Player player = players[nextPlayer];
-        if (player.getDeathOrder()!=0) { //if the player is dead
-            passTurn();
-        } else {
-            if (!player.canRollDice()) { //if the player has any penalty
-                player.lowerPenalty(); //lower their penalty by 1
-                passTurn();
-            }
-        }
+        nextPlayer = turns.next(nextPlayer);
     }
 
     /**
      * Resets the game after a win
      */
     private void resetGame() {
-        nextPlayer=0; // resets to 1st player
-        while (getDeathCertificate(nextPlayer)) {nextPlayer++;} //skips to an alive player
+        nextPlayer=turns.first(); // resets to the 1st alive player
         deathOccurred=false; // resets deathOccurred
         turnNumber=0; // resets turn number
-        PlayerIterator it = iterator();
-        while (it.hasNext()) {
-            Player player = it.next();
+        //Only the players who moved in this game can be away from the start or penalized
+        for (int i=0; i<touchedCount; i++) {
+            Player player = players[touched[i]];
+            boolean isAlive = player.getDeathOrder()==0;
+            isTouched[touched[i]] = false;
+            if (isAlive) {alive.remove(player);}
+            ranked.remove(player);
             player.movePlayer(0);
             player.applyPenalty(0);
+            ranked.add(player);
+            if (isAlive) {alive.add(player);}
         }
+        touchedCount = 0;
     }
 
     /**
@@ -250,11 +531,20 @@ public class Gameplay {
 
     /**
      * Pre: isCupOver==true;
+     * Only the first character of the winner's id: players are looked up with getWinnerId
      * @return char - Returns cup Winner
      */
     public char getWinner() {
 
-        return rankIt().next().getColor();
+        return ranked.getFirst().getColor();
+    }
+
+    /**
+     * Pre: isCupOver==true;
+     * @return String - Returns the id of the cup Winner
+     */
+    public String getWinnerId() {
+        return ranked.getFirst().getId();
     }
 
     //Iterators
@@ -267,68 +557,19 @@ public class Gameplay {
     }
 
     /** RANKING - Sortered iterator
+     * The ranking is kept up to date after every turn, so no sorting is done here
+     * pre: the iterator is used before the next turn is processed
      * @return iterator with all players sorted by ranking
      */
     public PlayerIterator rankIt() {
-        Player[] rankedPlayers = new Player[size];
-        for (int i = 0; i < size; i++) {
-            rankedPlayers[i] = players[i];
-        }
-        sortRank(rankedPlayers, size);
-        return new PlayerIterator(rankedPlayers, size);
+        return new PlayerIterator(ranked.iterator());
     }
 
     /** ALIVE - Filtered and sortered iterator
+     * pre: the iterator is used before the next turn is processed
      * @return iterator with all alive players sorted by position and play order
      */
     public PlayerIterator aliveIt() {
-        Player[] aliveArray = new Player[alivePlayers];
-        int j=0;
-        for (int i = 0; i < size; i++) {
-            if (!getDeathCertificate(i)) { //check for condition
-                aliveArray[j++] = players[i];
-            }
-        }
-        sortAlive(aliveArray, alivePlayers);
-        return new PlayerIterator(aliveArray, j);
-    }
-
-    /**
-     * Sorts a Player object array by their ranking
-     * @param list - the Player object array to be ranked
-     * @param size - the array size
-     */
-    private void sortRank(Player[] list, int size) {
-        for (int i=0; i < size-1; i++) {
-            int idx = i;
-            for (int j=i+1; j< size; j++) {
-                if (list[j].compareRank(list[idx]) > 0) {
-                    idx = j;
-                }
-            }
-            Player tmp = list[i];
-            list[i] = list[idx];
-            list[idx] = tmp;
-        }
-    }
-
-    /**
-     * Sorts a Player object array to determine who to kill at the end of a game
-     * @param list - the Player object array to be ranked
-     *             - Pre: contains alive players
-     * @param size - the array size
-     */
-    private void sortAlive(Player[] list, int size) {
-        for (int i=0; i < size-1; i++) {
-            int idx = i;
-            for (int j=i+1; j< size; j++) {
-                if (list[j].aliveCompare(list[idx]) < 0) {
-                    idx = j;
-                }
-            }
-            Player tmp = list[i];
-            list[i] = list[idx];
-            list[idx] = tmp;
-        }
+        return new PlayerIterator(alive.iterator());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+/** LATENCYHISTOGRAM CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Histogram of latencies in nanoseconds, with the same log-linear layout as HDR histograms:
+ * exact counts below SUB_BUCKETS ns, then SUB_BUCKETS/2 buckets per power of two (<1% error)
+ * Recording a value only increments a counter (no locking, no objects); each histogram must only
+ * be written by a single thread
+ */
+
+public class LatencyHistogram {
+    //Constants
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; //256
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_BIT = 45; //largest tracked value: 2^46-1 ns (about 19 hours)
+    private static final long MAX_VALUE = (1L << (MAX_BIT+1)) - 1;
+
+    //Instance variables
+    private final long[] counts;
+    private long count; //recorded values
+    private long total; //sum of the recorded values
+    private long max; //largest recorded value
+
+    /** Constructor
+     * Creates an empty histogram
+     */
+    public LatencyHistogram() {
+        counts = new long[SUB_BUCKETS + (MAX_BIT - SUB_BUCKET_BITS + 1) * HALF];
+    }
+
+    //Methods
+    /**
+     * Records a latency
+     * @param nanos - the latency in nanoseconds (negative values count as 0, huge ones are capped)
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        if (value > max) {max = value;}
+    }
+
+    /**
+     * @param value - a latency (>=0 && <=MAX_VALUE)
+     * @return the bucket of the latency
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {return (int) value;}
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1; //>=1
+        return SUB_BUCKETS + (shift-1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    /**
+     * @param index - a bucket
+     * @return the largest latency in the bucket
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {return index;}
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return mean latency, 0 if nothing was recorded
+     */
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * @return largest recorded latency
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile - the requested percentile
+     *                   - pre: >0 && <=100
+     * @return the latency under which the given percentage of the recorded latencies fall
+     * (within the precision of the buckets), 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long target = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i=0; i<counts.length && count > 0; i++) {
+            seen += counts[i];
+            if (seen >= target) {return Math.min(highestValue(i), max);}
+        }
+        return max;
+    }
+}
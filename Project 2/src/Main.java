@@ -5,41 +5,107 @@
  * Receives player input, processes commands and generates program output
 */
 
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 public class Main {
     //Constants
-    private static final String CMD_PLAYER = "player";
-    private static final String CMD_SQUARE = "square";
-    private static final String CMD_STATUS = "status";
-    private static final String CMD_DICE = "dice";
-    private static final String CMD_EXIT = "exit";
-    private static final String CMD_RANKING = "ranking";
+    //Command names are package-private: ReplayPipeline decodes the same commands
+    static final String CMD_PLAYER = "player";
+    static final String CMD_SQUARE = "square";
+    static final String CMD_STATUS = "status";
+    static final String CMD_DICE = "dice";
+    static final String CMD_EXIT = "exit";
+    static final String CMD_RANKING = "ranking";
+    static final String CMD_STATS = "stats";
+    static final String CMD_ODDS = "odds";
     private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final int TABLE_TILE_LIMIT = 1 << 16; //larger boards are kept sparse
+    private static final String STATS_PROPERTY = "gloria.stats"; //"off" disables the statistics
+    private static final String STATS_FILE_PROPERTY = "gloria.statsFile"; //written on exit
+    private static final String JOURNAL_PROPERTY = "gloria.journal"; //journal files, no extension
+    private static final String SNAPSHOT_PROPERTY = "gloria.snapshotInterval"; //turns
+    private static final String PIPELINE_PROPERTY = "gloria.pipeline"; //"on": see ReplayPipeline
+    private static final int SNAPSHOT_INTERVAL = 1000; //default turns between snapshots
+    private static final String ROSTER_PREFIX = "@"; //"@file" instead of letters: roster file
+
+    //Output messages (pre-encoded, see OutputWriter)
+    //Whole-line messages are package-private: ReplayPipeline answers with them too
+    static final byte[] MSG_INVALID_COMMAND = OutputWriter.fragment("Invalid command");
+    static final byte[] MSG_INVALID_DICE = OutputWriter.fragment("Invalid dice");
+    static final byte[] MSG_NONEXISTENT = OutputWriter.fragment("Nonexistent player");
+    static final byte[] MSG_ELIMINATED = OutputWriter.fragment("Eliminated player");
+    static final byte[] MSG_CUP_OVER = OutputWriter.fragment("The cup is over");
+    static final byte[] MSG_CUP_NOT_OVER = OutputWriter.fragment("The cup was not over yet...");
+    private static final byte[] MSG_NEXT_PLAYER = OutputWriter.fragment("Next to play: ");
+    private static final byte[] MSG_ON_SQUARE = OutputWriter.fragment(" is on square ");
+    private static final byte[] MSG_CAN_ROLL = OutputWriter.fragment(" can roll the dice");
+    private static final byte[] MSG_CANNOT_ROLL = OutputWriter.fragment(" cannot roll the dice");
+    private static final byte[] MSG_GAMES_WON = OutputWriter.fragment(": ");
+    private static final byte[] MSG_ALIVE_RANK = OutputWriter.fragment(" games won; on square ");
+    private static final byte[] MSG_DEAD_RANK = OutputWriter.fragment(" games won; eliminated.");
+    private static final byte[] MSG_WON_CUP = OutputWriter.fragment(" won the cup!");
+    static final byte[] MSG_STATS_OFF = OutputWriter.fragment("Statistics are off");
+    private static final byte[] MSG_GAME_ODDS = OutputWriter.fragment("% to win the game; ");
+    private static final byte[] MSG_CUP_ODDS = OutputWriter.fragment("% to win the cup");
+    private static final byte[] MSG_UNKNOWN_ODDS = OutputWriter.fragment("?");
+    private static final byte[] MSG_SAMPLED = OutputWriter.fragment("Estimated from ");
+    private static final byte[] MSG_SAMPLED_GAMES = OutputWriter.fragment(" sampled games");
 
     /** MAIN
      * Receives input, processes the player order, creates the board, starts the interpreter
-     * @throws FileNotFoundException - no try...catch since file "boards.txt" must exist (Precond.)
+     * @throws IOException - no try...catch since file "boards.txt" must exist (Precond.)
      */
 
-    public static void main(String[] args) throws FileNotFoundException {
-        //Input start
-        Scanner in = new Scanner(System.in);
+    public static void main(String[] args) throws IOException {
+        //Input and output start
+        //The output is only sent when the buffer is full or before waiting for more input
+        //(pipelined replays send it from their own thread, see ReplayPipeline)
+        boolean pipelined = "on".equals(System.getProperty(PIPELINE_PROPERTY));
+        OutputWriter out = new OutputWriter(new FileOutputStream(FileDescriptor.out), false);
+        CommandReader in = new CommandReader(System.in, pipelined ? null : out);
 
         //Processes the player order
-        String playerOrder = in.next(); in.nextLine(); //Pre: 3-10 different capital letters
+        //Pre: 3-10 different capital letters, or a roster file with one player id per line
+        String playerOrder = in.nextToken(); in.nextLine();
+        PlayerRoster roster = playerOrder.startsWith(ROSTER_PREFIX)
+                ? PlayerRoster.load(playerOrder.substring(ROSTER_PREFIX.length()))
+                : PlayerRoster.of(playerOrder);
 
         //Creates the board
         int boardNumber = in.nextInt();in.nextLine();
-        int[] board = new BoardGen(BOARD_FILE_NAME, boardNumber).getBoard();
+        //Huge boards are kept sparse; the others get their moves precomputed
+        SparseBoard sparse = BoardGen.readSparse(BOARD_FILE_NAME, boardNumber);
+        BoardView board = sparse.getTileNumber() <= TABLE_TILE_LIMIT
+                ? new TransitionTable(sparse) : sparse;
 
         //Starts a game
-        Gameplay game = new Gameplay(board, playerOrder);
+        Gameplay game = new Gameplay(board, roster);
+
+        //Recovers the game from its journal and keeps journaling it, if a journal was requested
+        String journalPath = System.getProperty(JOURNAL_PROPERTY);
+        TurnJournal journal = journalPath == null ? null : TurnJournal.open(journalPath, game,
+                Integer.getInteger(SNAPSHOT_PROPERTY, SNAPSHOT_INTERVAL));
+
+        //Processes commands, recording their latency unless the statistics are off
+        //Pipelined replays parse, apply and print commands on three threads (not timed)
+        CommandStats stats = pipelined || "off".equals(System.getProperty(STATS_PROPERTY))
+                ? null : new CommandStats();
+        if (pipelined) {ReplayPipeline.run(game, in, out);}
+        else {executeCmdLoop(game, in, out, stats);}
+        out.flush();
+        if (journal != null) {journal.close();}
 
-        //Processes commands
-        executeCmdLoop(game, in);
-        in.close();
+        //Dumps the statistics on exit, if a file was requested
+        String statsFile = System.getProperty(STATS_FILE_PROPERTY);
+        if (stats != null && statsFile != null) {
+            try (FileOutputStream file = new FileOutputStream(statsFile)) {
+                OutputWriter fileOut = new OutputWriter(file, false);
+                stats.print(fileOut);
+                fileOut.flush();
+            }
+        }
     }
 
     //Methods
@@ -47,156 +113,303 @@ public class Main {
      * Interprets and executes commands while cmd != exit
      * Prints output
      * @param game - the game state
-     * @param in - user input Scanner
-     */
-    private static void executeCmdLoop(Gameplay game, Scanner in) {
-        String cmd, arg;
-        do {
-            cmd = in.next(); //command
-            arg = in.nextLine().trim(); //argument
-            switch (cmd) {
-                case CMD_PLAYER:
-                    //invalidates the command if there's anything written after "player"
-                    if (!arg.equals("")) {System.out.println("Invalid command");}
-                    else {printNextPlayer(game);}
-                    break;
-                case CMD_SQUARE: printPlayerSquare(game, arg); break;
-                case CMD_STATUS: printPlayerStatus(game, arg); break;
-                case CMD_RANKING: printPlayerRanking(game); break;
-                case CMD_DICE:
-                    int[] dice = splitArg(arg); //Pre: 2 integers
-                    rollDice(game, dice[0], dice[1]);
-                    break;
-                case CMD_EXIT: printExitStatus(game); break;
-                default:
-                    System.out.println("Invalid command");
+     * @param in - user input reader
+     * @param out - where the output is printed
+     */
+    static void executeCmdLoop(Gameplay game, CommandReader in, OutputWriter out) {
+        executeCmdLoop(game, in, out, null);
+    }
+
+    /** Command interpreter
+     * Interprets and executes commands while cmd != exit, recording the latency of each command
+     * Prints output
+     * @param game - the game state
+     * @param in - user input reader
+     * @param out - where the output is printed
+     * @param stats - where the latencies are recorded (null: nothing is timed or recorded)
+     */
+    static void executeCmdLoop(Gameplay game, CommandReader in, OutputWriter out,
+                               CommandStats stats) {
+        boolean running = true;
+        while (running && in.next()) { //reads the command and its argument
+            if (stats == null) {
+                running = executeCmd(game, in, out, null);
+            } else {
+                long start = System.nanoTime();
+                running = executeCmd(game, in, out, stats);
+                stats.record(in, System.nanoTime() - start);
             }
-        } while (!cmd.equals(CMD_EXIT));
+        }
+    }
+
+    /**
+     * Executes the command last read by the reader
+     * @param game - the game state
+     * @param in - user input reader, holding the command and its argument
+     * @param out - where the output is printed
+     * @return false if the command was exit
+     */
+    static boolean executeCmd(Gameplay game, CommandReader in, OutputWriter out) {
+        return executeCmd(game, in, out, null);
     }
 
     /**
-     * Splits the dice command argument into 2 integers
-     * @param arg - the argument after the "dice" command
-     * pre: arg == two integers separated by a space
-     * @return dice - array with 2 integers (dice values)
-     */
-    private static int[] splitArg(String arg) {
-        String[] diceString = arg.split(" ");
-        int[] dice = new int[diceString.length];
-        for (int i = 0; i < diceString.length; i++) {
-            dice[i] = Integer.valueOf(diceString[i]);
+     * Executes the command last read by the reader
+     * @param game - the game state
+     * @param in - user input reader, holding the command and its argument
+     * @param out - where the output is printed
+     * @param stats - the command latencies, printed by the stats command (may be null)
+     * @return false if the command was exit
+     */
+    static boolean executeCmd(Gameplay game, CommandReader in, OutputWriter out,
+                              CommandStats stats) {
+        if (in.isCommand(CMD_PLAYER)) {
+            //invalidates the command if there's anything written after "player"
+            if (in.getArgLength()!=0) {out.writeLine(MSG_INVALID_COMMAND);}
+            else {printNextPlayer(game, out);}
+        } else if (in.isCommand(CMD_SQUARE)) {
+            printPlayerSquare(game, in, out);
+        } else if (in.isCommand(CMD_STATUS)) {
+            printPlayerStatus(game, in, out);
+        } else if (in.isCommand(CMD_RANKING)) {
+            printPlayerRanking(game, out);
+        } else if (in.isCommand(CMD_DICE)) {
+            in.decodeDice(); //Pre: 2 integers
+            rollDice(game, in.getDice1(), in.getDice2(), out);
+        } else if (in.isCommand(CMD_ODDS)) {
+            if (in.getArgLength()!=0) {out.writeLine(MSG_INVALID_COMMAND);}
+            else {printOdds(game, out);}
+        } else if (in.isCommand(CMD_STATS)) {
+            if (stats == null) {out.writeLine(MSG_STATS_OFF);}
+            else {stats.print(out);}
+        } else if (in.isCommand(CMD_EXIT)) {
+            printExitStatus(game, out);
+            return false;
+        } else {
+            out.writeLine(MSG_INVALID_COMMAND);
         }
-        return dice;
+        return true;
     }
 
     /** Player command
      * Prints the next player to roll the dice
      * @param game - the game state
+     * @param out - where the output is printed
      */
-    private static void printNextPlayer(Gameplay game) {
+    private static void printNextPlayer(Gameplay game, OutputWriter out) {
         if (game.isCupOver()) {
-            System.out.println("The cup is over");
+            out.writeLine(MSG_CUP_OVER);
         } else {
-            System.out.printf("Next to play: %c\n", game.getNextPlayer());
+            writeNextPlayer(game.getNextPlayerId(), out);
         }
     }
 
+    /**
+     * Prints the answer to the player command when the cup isn't over
+     * @param id - the next player's id
+     * @param out - where the output is printed
+     */
+    static void writeNextPlayer(String id, OutputWriter out) {
+        out.write(MSG_NEXT_PLAYER); out.write(id); out.endLine();
+    }
+
     /** Square command
      * Prints the position (tile) of the requested player
      * @param game - the game state
-     * @param player - the requested player's color
+     * @param in - user input reader, holding the requested player's id
+     * @param out - where the output is printed
      */
-    private static void printPlayerSquare(Gameplay game, String player) {
-        if (player.length()!=1) { //1 character, otherwise invalid player
-            System.out.println("Nonexistent player");
+    private static void printPlayerSquare(Gameplay game, CommandReader in, OutputWriter out) {
+        int index = game.searchPlayer(in.getArgBytes(), in.getArgLength()); //hashed, no String
+        if (index == -1) { //player not found
+            out.writeLine(MSG_NONEXISTENT);
+        } else if (game.getDeathCertificate(index))    {
+            out.writeLine(MSG_ELIMINATED);
         } else {
-            char color = player.charAt(0);
-            int index = game.searchPlayer(color);
-            if (index == -1) { //player not found
-                System.out.println("Nonexistent player");
-            } else if (game.getDeathCertificate(index))    {
-                System.out.println("Eliminated player");
-            } else {
-                //The position P of the player object corresponds to the square P+1
-                System.out.printf("%c is on square %d\n", color, game.getPlayerSquare(index) + 1);
-            }
+            //The position P of the player object corresponds to the square P+1
+            writeSquare(game.getPlayerId(index), game.getPlayerSquare(index) + 1, out);
         }
     }
 
+    /**
+     * Prints the answer to the square command for a player who is still alive
+     * @param id - the player's id
+     * @param square - the player's square (1-based)
+     * @param out - where the output is printed
+     */
+    static void writeSquare(String id, int square, OutputWriter out) {
+        out.write(id); out.write(MSG_ON_SQUARE); out.write(square); out.endLine();
+    }
+
     /** Status command
      * Prints if the requested player can roll the dice when it's their turn
      * @param game - the game state
-     * @param player - the requested player's color
+     * @param in - user input reader, holding the requested player's id
+     * @param out - where the output is printed
      */
-    private static void printPlayerStatus(Gameplay game, String player) {
-        if (player.length()!=1) { //1 character, otherwise invalid player
-            System.out.println("Nonexistent player");
+    private static void printPlayerStatus(Gameplay game, CommandReader in, OutputWriter out) {
+        int index = game.searchPlayer(in.getArgBytes(), in.getArgLength()); //hashed, no String
+        if (index == -1) { //player not found
+            out.writeLine(MSG_NONEXISTENT);
+        } else if (game.isCupOver()) {
+            out.writeLine(MSG_CUP_OVER);
+        }   else if (game.getDeathCertificate(index))  {
+            out.writeLine(MSG_ELIMINATED);
         } else {
-            char color = player.charAt(0);
-            int index = game.searchPlayer(color);
-            if (index == -1) { //player not found
-                System.out.println("Nonexistent player");
-            } else if (game.isCupOver()) {
-                System.out.println("The cup is over");
-            }   else if (game.getDeathCertificate(index))  {
-                System.out.println("Eliminated player");
-            } else if (game.getPlayerStatus(index)) {
-                System.out.printf("%c can roll the dice\n", color);
-            } else {
-                System.out.printf("%c cannot roll the dice\n", color);
-            }
+            writeStatus(game.getPlayerId(index), game.getPlayerStatus(index), out);
         }
     }
 
+    /**
+     * Prints the answer to the status command for a player who is still alive
+     * @param id - the player's id
+     * @param canRoll - can the player roll the dice?
+     * @param out - where the output is printed
+     */
+    static void writeStatus(String id, boolean canRoll, OutputWriter out) {
+        out.write(id); out.writeLine(canRoll ? MSG_CAN_ROLL : MSG_CANNOT_ROLL);
+    }
+
     /** Ranking command
      * Calls an iterator that sorts players by their ranking and prints their data one by one
      * @param game - the game state
+     * @param out - where the output is printed
      */
-    private static void printPlayerRanking(Gameplay game) {
+    private static void printPlayerRanking(Gameplay game, OutputWriter out) {
         PlayerIterator it = game.rankIt();
         while (it.hasNext()) { //Run iterator
             Player pl = it.next();
-            if (pl.getDeathOrder()==0) {
-                System.out.printf("%c: %d games won; on square %d.\n",
-                        pl.getColor(), pl.getScore(), pl.getPosition() + 1);
-            } else {
-                System.out.printf("%c: %d games won; eliminated.\n", pl.getColor(), pl.getScore());
-            }
+            writeRank(pl.getId(), pl.getScore(),
+                    pl.getDeathOrder()==0 ? pl.getPosition() + 1 : 0, out);
         }
 
     }
 
+    /**
+     * Prints one line of the ranking
+     * @param id - the player's id
+     * @param score - games won by the player
+     * @param square - the player's square (1-based), 0 if the player was eliminated
+     * @param out - where the output is printed
+     */
+    static void writeRank(String id, int score, int square, OutputWriter out) {
+        out.write(id); out.write(MSG_GAMES_WON); out.write(score);
+        if (square != 0) {
+            out.write(MSG_ALIVE_RANK); out.write(square); out.write('.');
+        } else {
+            out.write(MSG_DEAD_RANK);
+        }
+        out.endLine();
+    }
+
+    /** Odds command
+     * Prints the chance of each remaining player winning the current game and the cup
+     * (exact, or estimated by sampling when the game is too large to solve, see OddsSolver)
+     * @param game - the game state
+     * @param out - where the output is printed
+     */
+    private static void printOdds(Gameplay game, OutputWriter out) {
+        if (game.isCupOver()) {
+            out.writeLine(MSG_CUP_OVER);
+            return;
+        }
+        OddsSolver.Odds odds = OddsSolver.forBoard(game.getBoard()).solve(game);
+        for (int i=0; i<odds.size(); i++) {
+            writeOdds(game.getPlayerId(odds.getPlayer(i)), odds, i, out);
+        }
+        writeOddsSource(odds, out);
+    }
+
+    /**
+     * Prints the odds of one remaining player
+     * @param id - the player's id
+     * @param odds - the odds of every remaining player
+     * @param i - the player's place in the odds
+     * @param out - where the output is printed
+     */
+    static void writeOdds(String id, OddsSolver.Odds odds, int i, OutputWriter out) {
+        out.write(id); out.write(MSG_GAMES_WON);
+        if (odds.hasGameOdds()) {writePercent(odds.getGameOdds(i), out);}
+        else {out.write(MSG_UNKNOWN_ODDS);}
+        out.write(MSG_GAME_ODDS);
+        if (odds.hasCupOdds()) {writePercent(odds.getCupOdds(i), out);}
+        else {out.write(MSG_UNKNOWN_ODDS);}
+        out.writeLine(MSG_CUP_ODDS);
+    }
+
+    /**
+     * Prints how many games were sampled, if the odds aren't exact
+     * @param odds - the odds
+     * @param out - where the output is printed
+     */
+    static void writeOddsSource(OddsSolver.Odds odds, OutputWriter out) {
+        if (!odds.isExact()) {
+            out.write(MSG_SAMPLED); out.write(odds.getSamples()); out.writeLine(MSG_SAMPLED_GAMES);
+        }
+    }
+
+    /**
+     * Prints a chance as a percentage with 2 decimal places
+     * @param chance - the chance, between 0 and 1
+     * @param out - where the output is printed
+     */
+    private static void writePercent(double chance, OutputWriter out) {
+        long hundredths = Math.round(chance * 10000);
+        out.write(hundredths / 100); out.write('.');
+        out.write((char) ('0' + hundredths / 10 % 10)); out.write((char) ('0' + hundredths % 10));
+    }
+
     /** Dice command
      * Processes if the dice roll is valid and updates the board accordingly
      * @param game - the game state
      * @param dice1 - the first dice's value
      * @param dice2 - the second dice's value
+     * @param out - where the output is printed
      */
-    private static void rollDice(Gameplay game, int dice1, int dice2) {
+    private static void rollDice(Gameplay game, int dice1, int dice2, OutputWriter out) {
         int diceLow, diceHigh;
 
         //sort the dice
         if (dice1<dice2) {diceLow = dice1; diceHigh = dice2;}
         else {diceLow = dice2; diceHigh = dice1;}
 
-        if (diceLow<1 || diceHigh > 6) {
-            System.out.println("Invalid dice");
+        if (!isValidDice(diceLow, diceHigh)) {
+            out.writeLine(MSG_INVALID_DICE);
         } else if (game.isCupOver()) {
-            System.out.println("The cup is over");
+            out.writeLine(MSG_CUP_OVER);
         } else {
             game.processNextTurn(diceLow, diceHigh);
         }
     }
 
+    /**
+     * @param diceLow - the lowest dice value
+     * @param diceHigh - the highest dice value
+     * @return true if both dice are between 1 and 6
+     */
+    static boolean isValidDice(int diceLow, int diceHigh) {
+        return diceLow >= 1 && diceHigh <= 6;
+    }
+
     /** Exit command
      * Checks if the game is over and prints who won (if available)
      * @param game - the game state
+     * @param out - where the output is printed
      */
-    private static void printExitStatus(Gameplay game) {
+    private static void printExitStatus(Gameplay game, OutputWriter out) {
         if (game.isCupOver()) {
-            System.out.printf("%c won the cup!\n",game.getWinner());
+            writeWinner(game.getWinnerId(), out);
         } else {
-            System.out.println("The cup was not over yet...");
+            out.writeLine(MSG_CUP_NOT_OVER);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Prints the answer to the exit command when the cup is over
+     * @param id - the cup winner's id
+     * @param out - where the output is printed
+     */
+    static void writeWinner(String id, OutputWriter out) {
+        out.write(id); out.writeLine(MSG_WON_CUP);
+    }
+}
@@ -0,0 +1,480 @@
+/** NIOGAMESERVER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Serves the same command protocol as GameServer with non-blocking connections, so that tens of
+ * thousands of mostly idle connections are served by a few threads instead of one thread each
+ * A fixed number of event loops (one selector and one thread each) share the connections; the
+ * first loop also accepts new connections and hands them out round-robin
+ * Commands are parsed straight from each loop's direct read buffer (only the end of a line that
+ * hasn't arrived yet is copied, into a buffer of the connection). The answers to every command
+ * received in one read are sent together, and answers that couldn't be sent yet are queued and
+ * sent with gathering writes. An idle connection holds no buffers at all
+ * A client that doesn't read its answers stops being read until the queued answers are sent
+ * When a connection can't be accepted (e.g. no file descriptors left), accepting stops for
+ * ACCEPT_BACKOFF_MILLIS instead of retrying in a busy loop
+ * Usage: NioGameServer [port] [threads]
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NioGameServer implements Closeable {
+    //Constants
+    private static final int DEFAULT_PORT = 4243;
+    private static final int BOARD_CACHE_SIZE = 64;
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final int ACCEPT_BACKLOG = 4096; //connections waiting to be accepted
+    private static final int READ_BUFFER_SIZE = 1 << 16; //bytes read at once (per loop)
+    private static final int MAX_LINE = 1 << 16; //longer lines close the connection
+    private static final int MAX_QUEUED_OUTPUT = 1 << 20; //stops reading a client above this
+    private static final int MAX_GATHER = 64; //buffers sent by one gathering write
+    private static final long ACCEPT_BACKOFF_MILLIS = 100; //pause after a failed accept
+    private static final String CMD_JOIN = "join";
+    private static final byte[] MSG_SESSION = OutputWriter.fragment("Session ");
+    private static final byte[] MSG_NONEXISTENT_SESSION =
+            OutputWriter.fragment("Nonexistent session");
+
+    //Instance variables
+    private final SessionManager sessions;
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final SelectionKey acceptKey; //the server's key, in the first loop
+    private int nextLoop; //loop of the next accepted connection (only used by the first loop)
+    private long acceptResume; //when accepting resumes (nanoTime), 0 if not paused; first loop only
+    private volatile boolean closed;
+
+    /** MAIN
+     * Usage: NioGameServer [port] [threads]
+     * @throws IOException - if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        SessionManager sessions = new SessionManager(BOARD_FILE_NAME, BOARD_CACHE_SIZE);
+        NioGameServer server = new NioGameServer(sessions, InetAddress.getByName("0.0.0.0"), port,
+                threads);
+        System.out.printf("Listening on port %d with %d threads\n", server.getPort(), threads);
+    }
+
+    /** Constructor
+     * Opens the port and starts the event loops
+     * @param sessions - the sessions served
+     * @param address - local address to listen on
+     * @param port - the port (0 == any free port)
+     * @param threads - number of event loops
+     *                - pre: >0
+     * @throws IOException - if the port cannot be opened
+     */
+    public NioGameServer(SessionManager sessions, InetAddress address, int port, int threads)
+            throws IOException {
+        this.sessions = sessions;
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(address, port), ACCEPT_BACKLOG);
+        server.configureBlocking(false);
+        this.loops = new EventLoop[threads];
+        for (int i=0; i<threads; i++) {loops[i] = new EventLoop(i);}
+        this.acceptKey = server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        //The JDK loads the code that closes channels when the first one is closed, and that needs
+        //a file descriptor of its own: a channel is closed now, so that connections can still be
+        //closed when no descriptors are left
+        SocketChannel.open().close();
+        for (EventLoop loop : loops) {loop.thread.start();}
+    }
+
+    //Methods
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return the sessions served
+     */
+    public SessionManager getSessions() {
+        return sessions;
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getConnections() {
+        int connections = 0;
+        for (EventLoop loop : loops) {connections += loop.connections;}
+        return connections;
+    }
+
+    /**
+     * Stops the server and closes every connection
+     * Sessions stay open, as when their clients disconnect
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** CONNECTION CLASS
+     * State of one client connection
+     */
+    private static class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private byte[] partial; //start of a line that hasn't ended yet (null when there's none)
+        private int partialLength;
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>(); //answers not sent yet
+        private long queued; //bytes in output
+        private String playerOrder; //first line of a new session, until the board number arrives
+        private long id = -1; //session id (-1 until the session is open)
+        private Gameplay game;
+        private boolean closing; //closed once the queued answers are sent
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /** EVENTLOOP CLASS
+     * One selector and its thread, serving a share of the connections
+     * The read buffer, the reader and the writer are shared by all of the loop's connections, since
+     * a loop handles one connection at a time
+     */
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted; //handed out by the first loop
+        private final ByteBuffer readBuffer;
+        private final CommandReader reader;
+        private final AnswerSink sink;
+        private final OutputWriter out;
+        private final ByteBuffer[] gather;
+        private volatile int connections;
+
+        EventLoop(int number) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "NioGameServer-" + number);
+            this.accepted = new ConcurrentLinkedQueue<>();
+            this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            this.reader = new CommandReader(InputStream.nullInputStream());
+            this.sink = new AnswerSink();
+            this.out = new OutputWriter(sink, false); //sent once per read
+            this.gather = new ByteBuffer[MAX_GATHER];
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    if (this != loops[0] || acceptResume == 0) { //only the first loop accepts
+                        selector.select();
+                    } else {
+                        long millis = (acceptResume - System.nanoTime()) / 1_000_000;
+                        selector.select(Math.max(1, millis));
+                        resumeAccepting();
+                    }
+                    registerAccepted();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (!key.isValid()) {continue;}
+                        if (key.isAcceptable()) {accept();}
+                        else {serve((Connection) key.attachment(), key);}
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                //selector failed: the loop's connections are closed below
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    try {key.channel().close();} catch (IOException e) {/*closing anyway*/}
+                }
+                try {selector.close();} catch (IOException e) {/*closing anyway*/}
+            }
+        }
+
+        /**
+         * Accepts every pending connection and hands them out to the loops
+         * A failure (e.g. no file descriptors left) leaves the rest pending, to be retried after
+         * ACCEPT_BACKOFF_MILLIS
+         */
+        private void accept() {
+            SocketChannel channel;
+            while ((channel = acceptNext()) != null) {
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                if (loop == this) {
+                    register(channel);
+                } else {
+                    loop.accepted.add(channel);
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        /**
+         * @return the next pending connection, configured, or null if there is none
+         */
+        private SocketChannel acceptNext() {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                pauseAccepting(e);
+                return null;
+            }
+            if (channel == null) {return null;}
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true); //answers are small
+                return channel;
+            } catch (IOException e) {
+                closeQuietly(channel);
+                return null;
+            }
+        }
+
+        /**
+         * Stops waiting for new connections for ACCEPT_BACKOFF_MILLIS (the pending ones would
+         * keep the selector ready, so it would spin until the failure goes away)
+         * @param e - why the connection couldn't be accepted
+         */
+        private void pauseAccepting(IOException e) {
+            if (closed || !acceptKey.isValid()) {return;}
+            System.err.println("NioGameServer: accept failed, retrying in " + ACCEPT_BACKOFF_MILLIS
+                    + " ms (" + e + ")");
+            acceptKey.interestOps(0);
+            acceptResume = System.nanoTime() + ACCEPT_BACKOFF_MILLIS * 1_000_000;
+        }
+
+        /**
+         * Waits for new connections again, once the pause after a failed accept is over
+         */
+        private void resumeAccepting() {
+            if (System.nanoTime() - acceptResume < 0) {return;}
+            acceptResume = 0;
+            if (acceptKey.isValid()) {acceptKey.interestOps(SelectionKey.OP_ACCEPT);}
+        }
+
+        /**
+         * Registers the connections handed to this loop
+         */
+        private void registerAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {register(channel);}
+        }
+
+        private void register(SocketChannel channel) {
+            Connection connection = new Connection(channel);
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections++;
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        }
+
+        /**
+         * Handles a connection that is ready
+         * Any failure (a disconnection or a malformed command) closes the connection, as in
+         * GameServer; its session stays open
+         * Malformed input is logged in one line, any other runtime failure (a bug) with its trace
+         * @param connection - the connection
+         * @param key - its key
+         */
+        private void serve(Connection connection, SelectionKey key) {
+            try {
+                if (key.isWritable()) {send(connection);}
+                if (key.isValid() && key.isReadable()) {receive(connection);}
+            } catch (IOException e) {
+                close(connection);
+            } catch (IllegalArgumentException e) { //malformed input (e.g. a dice command)
+                System.err.println("NioGameServer: closing a connection of session " + connection.id
+                        + ": " + e);
+                close(connection);
+            } catch (RuntimeException e) {
+                System.err.println("NioGameServer: closing a connection of session " + connection.id
+                        + " after a failure");
+                e.printStackTrace();
+                close(connection);
+            }
+        }
+
+        /**
+         * Reads what the client sent and runs every whole command in it
+         * @param connection - the connection
+         * @throws IOException - if the connection failed
+         */
+        private void receive(Connection connection) throws IOException {
+            readBuffer.clear();
+            int read = connection.channel.read(readBuffer);
+            if (read < 0) {close(connection); return;}
+            readBuffer.flip();
+
+            ByteBuffer input = readBuffer; //parsed in place when no line was left unfinished
+            if (connection.partial != null) {
+                int length = connection.partialLength + readBuffer.remaining();
+                if (length > connection.partial.length) {
+                    connection.partial = Arrays.copyOf(connection.partial,
+                            Math.max(length, connection.partial.length * 2));
+                }
+                readBuffer.get(connection.partial, connection.partialLength,
+                        readBuffer.remaining());
+                input = ByteBuffer.wrap(connection.partial, 0, length);
+            }
+
+            sink.connection = connection;
+            try {
+                while (!connection.closing && reader.next(input)) {runLine(connection);}
+            } finally {
+                out.flush(); //even after a failure, so the answers never reach another connection
+                sink.connection = null;
+            }
+
+            //Keeps the unfinished line (or drops the rest of the input after "exit")
+            int left = input.remaining();
+            if (left == 0 || connection.closing) {
+                connection.partial = null;
+            } else if (left > MAX_LINE) {
+                throw new IOException("Line too long");
+            } else if (input == readBuffer) {
+                connection.partial = new byte[Math.max(left * 2, 64)];
+                readBuffer.get(connection.partial, 0, left);
+            } else {
+                System.arraycopy(connection.partial, input.position(), connection.partial, 0, left);
+            }
+            connection.partialLength = left;
+            send(connection);
+        }
+
+        /**
+         * Runs the line last read: a line of the session header, or a command of the session
+         * @param connection - the connection
+         * @throws IOException - propagates file errors
+         */
+        private void runLine(Connection connection) throws IOException {
+            if (connection.game != null) {
+                boolean running;
+                synchronized (connection.game) { //joined clients may share the game
+                    running = Main.executeCmd(connection.game, reader, out);
+                }
+                if (!running) { //exit command
+                    sessions.retire(connection.id);
+                    connection.closing = true;
+                }
+            } else if (connection.playerOrder != null) { //board number
+                int boardNumber = Integer.parseInt(reader.getCommand());
+                openSession(connection, sessions.create(connection.playerOrder, boardNumber));
+            } else if (reader.isCommand(CMD_JOIN)) {
+                long id = Long.parseLong(reader.getArg());
+                if (sessions.get(id) == null) {
+                    out.writeLine(MSG_NONEXISTENT_SESSION);
+                    connection.closing = true;
+                } else {
+                    openSession(connection, id);
+                }
+            } else { //player order
+                connection.playerOrder = reader.getCommand();
+                if (connection.playerOrder == null) {
+                    throw new IllegalArgumentException("Invalid player order");
+                }
+            }
+        }
+
+        /**
+         * Binds a connection to its session and replies with the session id
+         */
+        private void openSession(Connection connection, long id) {
+            Gameplay game = sessions.get(id);
+            if (game == null) {throw new IllegalStateException("Session retired");}
+            connection.id = id;
+            connection.game = game;
+            connection.playerOrder = null;
+            out.write(MSG_SESSION); out.write(id); out.endLine();
+        }
+
+        /**
+         * Sends as many queued answers as the connection takes, with gathering writes, and only
+         * asks to be woken up for writing (and stops reading) while answers are left
+         * @param connection - the connection
+         * @throws IOException - if the connection failed
+         */
+        private void send(Connection connection) throws IOException {
+            while (!connection.output.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer buffer : connection.output) {
+                    gather[count++] = buffer;
+                    if (count == MAX_GATHER) {break;}
+                }
+                long written = connection.channel.write(gather, 0, count);
+                Arrays.fill(gather, 0, count, null);
+                connection.queued -= written;
+                while (!connection.output.isEmpty() && !connection.output.peek().hasRemaining()) {
+                    connection.output.poll();
+                }
+                if (written == 0) {break;} //the socket is full
+            }
+            if (connection.output.isEmpty() && connection.closing) {close(connection); return;}
+
+            int interest = connection.queued < MAX_QUEUED_OUTPUT && !connection.closing
+                    ? SelectionKey.OP_READ : 0;
+            if (!connection.output.isEmpty()) {interest |= SelectionKey.OP_WRITE;}
+            if (connection.key.interestOps() != interest) {connection.key.interestOps(interest);}
+        }
+
+        private void close(Connection connection) {
+            if (!connection.key.isValid()) {return;}
+            connection.key.cancel();
+            closeQuietly(connection.channel);
+            connection.output.clear();
+            connection.partial = null;
+            connections--;
+        }
+
+        /** ANSWERSINK CLASS
+         * Receives what the loop's writer sends and queues it on the connection being served
+         */
+        private class AnswerSink extends OutputStream {
+            private Connection connection;
+
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                if (length == 0) {return;}
+                byte[] copy = Arrays.copyOfRange(bytes, offset, offset + length);
+                connection.output.add(ByteBuffer.wrap(copy));
+                connection.queued += length;
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {channel.close();} catch (IOException e) {/*closing anyway*/}
+    }
+}
@@ -0,0 +1,314 @@
+/** NIOGAMESERVERLOAD CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Connection-scaling test for the NioGameServer class over loopback
+ * First opens many idle connections (each with its own session, then silent), then, while they
+ * are still open, plays several thousand active connections at the same time: each creates a
+ * session, plays a few rounds of "dice" + "player" and exits. Reports how fast the connections
+ * were opened and the throughput and latency of the active ones
+ * The clients are non-blocking too (one thread and one selector for all of them), and they
+ * connect from different loopback addresses, so they aren't limited by the ephemeral ports of
+ * a single address. Both ends of every connection are in this process: the number of idle
+ * connections is lowered if there aren't enough file descriptors for them
+ * Usage: NioGameServerLoad [idle connections] [active connections] [rounds] [server threads]
+ */
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class NioGameServerLoad {
+    //Constants
+    private static final int DEFAULT_IDLE = 50_000;
+    private static final int DEFAULT_ACTIVE = 2_000;
+    private static final int DEFAULT_ROUNDS = 20;
+    private static final String PLAYER_ORDER = "ABCD";
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final int BOARDS = 3; //boards used, round-robin
+    private static final int MAX_CONNECTING = 512; //connections being opened at the same time
+    private static final int SOURCE_ADDRESSES = 250; //127.0.0.2 to 127.0.0.251
+    private static final int FDS_PER_CONNECTION = 2; //client and server end
+    private static final int RESERVED_FDS = 256; //files, selectors, the JVM itself
+    private static final byte[] NEXT_PLAYER = "Next to play".getBytes(StandardCharsets.UTF_8);
+
+    //Instance variables
+    private final Selector selector;
+    private final InetSocketAddress server;
+    private final ByteBuffer readBuffer;
+    private final int rounds; //rounds of the active connections (0: idle connections)
+    private long[] latencies; //latency of each round and exit
+    private int timed; //number of latencies
+    private long commands; //commands sent by the active connections
+    private int finished; //connections that opened their session (idle) or exited (active)
+    private int failures;
+
+    /** MAIN
+     * @throws Exception - any failure aborts the test
+     */
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_IDLE;
+        int active = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ACTIVE;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+
+        int connections = maxConnections();
+        if (idle + active > connections) {
+            idle = Math.max(0, connections - active);
+            System.out.printf("Not enough file descriptors: idle connections lowered to %d\n",
+                    idle);
+        }
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (NioGameServer server = new NioGameServer(new SessionManager(BOARD_FILE_NAME, BOARDS),
+                loopback, 0, threads);
+             Selector idleSelector = Selector.open(); Selector activeSelector = Selector.open()) {
+            InetSocketAddress address = new InetSocketAddress(loopback, server.getPort());
+
+            //Phase 1: idle connections, kept open until the end
+            NioGameServerLoad idleClients = new NioGameServerLoad(idleSelector, address, 0);
+            long start = System.nanoTime();
+            idleClients.run(idle);
+            long idleTime = System.nanoTime() - start;
+            int open = server.getConnections();
+
+            //Phase 2: active connections, all at the same time
+            NioGameServerLoad activeClients =
+                    new NioGameServerLoad(activeSelector, address, rounds);
+            start = System.nanoTime();
+            activeClients.run(active);
+            long playTime = System.nanoTime() - start;
+
+            Thread.sleep(100); //lets the server see the active connections close
+            printReport(idle, open, idleTime, active, rounds, playTime, activeClients,
+                    server.getConnections(), server.getSessions().size(), threads);
+            if (idleClients.failures + activeClients.failures > 0) {
+                System.out.printf("%d failed clients\n",
+                        idleClients.failures + activeClients.failures);
+            }
+            for (SelectionKey key : idleSelector.keys()) {key.channel().close();}
+        }
+    }
+
+    /** Constructor
+     * @param selector - selector of these clients
+     * @param server - the server's address
+     * @param rounds - rounds played by each client (0: idle clients, they only open a session)
+     */
+    private NioGameServerLoad(Selector selector, InetSocketAddress server, int rounds) {
+        this.selector = selector;
+        this.server = server;
+        this.readBuffer = ByteBuffer.allocateDirect(1 << 16);
+        this.rounds = rounds;
+    }
+
+    /**
+     * @return how many connections fit in the file descriptors of this process
+     */
+    private static int maxConnections() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (!(os instanceof com.sun.management.UnixOperatingSystemMXBean)) {
+            return Integer.MAX_VALUE;
+        }
+        long fds = ((com.sun.management.UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount();
+        long connections = Math.max(0, (fds - RESERVED_FDS) / FDS_PER_CONNECTION);
+        return (int) Math.min(Integer.MAX_VALUE, connections);
+    }
+
+    /** CLIENT CLASS
+     * State of one client connection
+     */
+    private static class Client {
+        private final int number;
+        private ByteBuffer pending; //commands not sent yet (null when there are none)
+        private final byte[] line = new byte[NEXT_PLAYER.length]; //start of the current answer line
+        private int lineLength;
+        private long id = -1; //session id (-1 until the session is open)
+        private int round;
+        private boolean cupOver; //once the cup is over, "dice" prints a line of its own
+        private long sent; //when the last commands were sent
+
+        Client(int number) {
+            this.number = number;
+        }
+    }
+
+    //Methods
+    /**
+     * Opens the connections and serves them until every one has finished
+     * @param clients - number of connections
+     * @throws IOException - if the selector fails
+     */
+    private void run(int clients) throws IOException {
+        latencies = new long[rounds == 0 ? 0 : clients * (rounds + 1)];
+        int opened = 0;
+        while (finished < clients) {
+            while (opened < clients && opened - finished < MAX_CONNECTING) {
+                open(new Client(opened++));
+            }
+            selector.select();
+            for (SelectionKey key : selector.selectedKeys()) {
+                Client client = (Client) key.attachment();
+                try {
+                    if (key.isConnectable()) {connected(client, key);}
+                    if (key.isValid() && key.isWritable()) {flush(client, key);}
+                    if (key.isValid() && key.isReadable()) {receive(client, key);}
+                } catch (IOException e) {
+                    fail(key);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Starts connecting a client, from one of the loopback addresses
+     */
+    private void open(Client client) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            InetAddress address = server.getAddress();
+            if (address instanceof Inet4Address && address.isLoopbackAddress()) {
+                int source = 2 + client.number % SOURCE_ADDRESSES;
+                byte[] sourceAddress = {127, 0, 0, (byte) source};
+                channel.bind(new InetSocketAddress(InetAddress.getByAddress(sourceAddress), 0));
+            }
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT, client);
+            if (channel.connect(server)) {connected(client, key);}
+        } catch (IOException e) {
+            failures++;
+            finished++;
+            if (channel != null) {
+                try {channel.close();} catch (IOException ignored) {/*closing anyway*/}
+            }
+        }
+    }
+
+    /**
+     * Finishes connecting a client and sends the session header
+     */
+    private void connected(Client client, SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.isConnectionPending() && !channel.finishConnect()) {return;}
+        key.interestOps(SelectionKey.OP_READ);
+        send(client, key, PLAYER_ORDER + "\n" + (client.number % BOARDS + 1) + "\n");
+    }
+
+    /**
+     * Sends commands, waiting for the socket to take them if needed
+     */
+    private void send(Client client, SelectionKey key, String commands) throws IOException {
+        client.pending = ByteBuffer.wrap(commands.getBytes(StandardCharsets.UTF_8));
+        client.sent = System.nanoTime();
+        flush(client, key);
+    }
+
+    private void flush(Client client, SelectionKey key) throws IOException {
+        if (client.pending == null) {return;}
+        ((SocketChannel) key.channel()).write(client.pending);
+        if (client.pending.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            client.pending = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Reads the server's answers, line by line
+     */
+    private void receive(Client client, SelectionKey key) throws IOException {
+        readBuffer.clear();
+        int read = ((SocketChannel) key.channel()).read(readBuffer);
+        if (read < 0) {throw new IOException("Closed by the server");}
+        for (int i=0; i<read && key.isValid(); i++) {
+            byte b = readBuffer.get(i);
+            if (b == '\n') {
+                answered(client, key);
+                client.lineLength = 0;
+            } else if (client.lineLength < client.line.length) {
+                client.line[client.lineLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * Handles an answer line: the session id, the answer to a round or the answer to "exit"
+     */
+    private void answered(Client client, SelectionKey key) throws IOException {
+        long now = System.nanoTime();
+        if (client.id == -1) { //"Session <id>"
+            client.id = 0;
+            if (rounds == 0) {finished++; return;} //idle from now on
+        } else {
+            latencies[timed++] = now - client.sent;
+            if (client.round == rounds) { //answer to exit
+                finished++;
+                key.channel().close();
+                return;
+            }
+            client.cupOver = !Arrays.equals(client.line, 0, client.lineLength,
+                    NEXT_PLAYER, 0, NEXT_PLAYER.length);
+            client.round++;
+        }
+
+        if (client.round == rounds) {
+            commands++;
+            send(client, key, "exit\n");
+        } else {
+            int r = client.round, i = client.number;
+            int dice1 = (i + r) % 6 + 1, dice2 = (i * 7 + r * 3) % 6 + 1;
+            commands += client.cupOver ? 1 : 2;
+            send(client, key, client.cupOver ? "player\n"
+                    : "dice " + dice1 + " " + dice2 + "\nplayer\n");
+        }
+    }
+
+    private void fail(SelectionKey key) {
+        failures++;
+        finished++;
+        try {key.channel().close();} catch (IOException ignored) {/*closing anyway*/}
+    }
+
+    /**
+     * Prints the test results
+     */
+    private static void printReport(int idle, int open, long idleTime, int active, int rounds,
+                                    long playTime, NioGameServerLoad activeClients, int left,
+                                    int sessions, int threads) {
+        long[] latencies = Arrays.copyOf(activeClients.latencies, activeClients.timed);
+        Arrays.sort(latencies);
+        System.out.printf("Server threads: %d\n", threads);
+        System.out.printf("Idle connections: %d opened in %d ms (%.0f connections/s)\n",
+                idle, idleTime / 1_000_000, idle * 1e9 / Math.max(idleTime, 1));
+        System.out.printf("Connections open at the server: %d\n", open);
+        System.out.printf("Active connections: %d x %d rounds in %d ms (%.0f commands/s)\n",
+                active, rounds, playTime / 1_000_000, activeClients.commands * 1e9 / playTime);
+        System.out.printf("Commands timed: %d\n", latencies.length);
+        System.out.printf("Latency p50: %d us; p99: %d us; max: %d us\n",
+                percentile(latencies, 0.50) / 1000, percentile(latencies, 0.99) / 1000,
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000);
+        System.out.printf("Connections left open: %d; sessions left open: %d\n", left, sessions);
+    }
+
+    /**
+     * @param sorted - sorted values
+     * @param p - the percentile (0..1)
+     * @return the value at the percentile
+     */
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {return 0;}
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
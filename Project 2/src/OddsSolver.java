@@ -0,0 +1,576 @@
+/** ODDSSOLVER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Exact odds of winning the current game and the cup, for every remaining player (odds command)
+ * Players make no choices, so the odds only depend on the state of the game and on the dice
+ * Players also move independently of each other: each one is a small Markov chain over
+ * (position, penalty, instant win allowed), advanced once per turn slot (a penalized player's slot
+ * only lowers the penalty). The chains only interact through who reaches the last tile first, who
+ * is the first to fall on a death tile and who is last when the game ends, so the game is solved
+ * with one forward sweep over the slots, in order of play, combining the chains' distributions
+ * The cup winner is the last player alive (scores only break ties between dead players), and a new
+ * game only depends on how many players are alive, so the rest of the cup is a memoized recursion
+ * over the number of players
+ * Results are memoized in a bounded transposition table keyed by the packed game state
+ * Games with too many players, boards too large for the chains and games that can't be solved
+ * exactly within EXACT_NANOS are sampled instead
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public class OddsSolver {
+    //Constants
+    private static final int MAX_EXACT_PLAYERS = 10; //more alive players: sampled
+    private static final int MAX_CHAIN_STATES = 1 << 16; //larger boards: sampled
+    private static final double EPSILON = 1e-12; //probability left when a sweep stops
+    private static final int MAX_SLOTS = 1 << 14; //longest game followed by the sweeps
+    private static final int MAX_FINISH_TIMES = 1 << 22; //doubles kept in finishTimes (32 MB)
+    private static final long EXACT_NANOS = 500_000_000L; //time allowed to the exact solution
+    private static final int TABLE_CAPACITY = 1 << 12; //solved states kept in the table
+    private static final long SAMPLE_NANOS = 250_000_000L; //time spent sampling a state
+    private static final int MAX_SAMPLES = 1 << 20;
+    private static final long SEED = 1; //sampling seed (the same state gives the same estimate)
+    private static final int INSTANT_SUM = 9; //3+6, see Gameplay.processNextTurn
+    private static final int INSTANT_WEIGHT = 2; //3+6 and 6+3, out of 36 rolls
+
+    //One solver per board, shared by every game played on it
+    private static final Map<BoardView, OddsSolver> SOLVERS = new WeakHashMap<>();
+
+    //Instance variables
+    private final TransitionTable moves; //precomputed moves, null if the board has none (sampled)
+    private final int lastTile;
+    private final int penaltyLevels; //highest penalty + 1
+    private final int states; //states of a player's chain, 0 if it isn't built (sampled)
+    private final double[] finishProb; //finishProb[s] == chance of finishing from s in one slot
+    private final int[][] targets; //targets[s][o] == state after outcome o of a slot in state s
+    private final double[][] probs; //probs[s][o] == chance of that outcome
+    private final boolean[][] deaths; //deaths[s][o] == outcome o lands on a death tile
+    private double[][] finishTimes; //finishTimes[t][s] == chance of reaching the end in exactly t+1
+                                    //slots from s, with harmless death tiles (built when needed)
+    private boolean finishTimesTooLong; //finishTimes would pass MAX_FINISH_TIMES (sampled)
+    private final HashMap<Integer, double[]> freshCups; //players -> cup odds of a new game
+                                                        //(by play order)
+    private final LinkedHashMap<String, Odds> table; //packed state -> odds (LRU first)
+
+    /** ODDS CLASS
+     * Odds of the remaining players, in order of play
+     */
+    public static final class Odds {
+        private final int[] players; //indexes of the players
+        private final double[] game; //chance of winning the current game, null if unknown
+        private final double[] cup; //chance of winning the cup, null if unknown
+        private final long samples; //sampled games, -1 if the odds are exact
+
+        /** Constructor
+         * @param players - indexes of the remaining players, in order of play
+         * @param game - their chances of winning the current game (null: no sampled game finished)
+         * @param cup - their chances of winning the cup (null: no sampled cup finished)
+         * @param samples - number of sampled games, -1 if the odds are exact
+         */
+        Odds(int[] players, double[] game, double[] cup, long samples) {
+            this.players = players;
+            this.game = game;
+            this.cup = cup;
+            this.samples = samples;
+        }
+
+        /**
+         * @return number of remaining players
+         */
+        public int size() {return players.length;}
+
+        /**
+         * @param i - pre: >=0 && <size()
+         * @return index of the i-th remaining player in the players array
+         */
+        public int getPlayer(int i) {return players[i];}
+
+        /**
+         * @return false if no sampled game finished in time (game odds unknown)
+         */
+        public boolean hasGameOdds() {return game != null;}
+
+        /**
+         * @param i - pre: >=0 && <size() && hasGameOdds()
+         * @return chance of the i-th remaining player winning the current game
+         */
+        public double getGameOdds(int i) {return game[i];}
+
+        /**
+         * @return false if no sampled cup finished in time (cup odds unknown)
+         */
+        public boolean hasCupOdds() {return cup != null;}
+
+        /**
+         * @param i - pre: >=0 && <size() && hasCupOdds()
+         * @return chance of the i-th remaining player winning the cup
+         */
+        public double getCupOdds(int i) {return cup[i];}
+
+        /**
+         * @return true if the odds are exact, false if they were sampled
+         */
+        public boolean isExact() {return samples < 0;}
+
+        /**
+         * @return number of sampled games (see isExact)
+         */
+        public long getSamples() {return samples;}
+    }
+
+    /** OUTCOME CLASS
+     * Result of a game sweep, by position in the turn order of the sweep
+     */
+    private static final class Outcome {
+        final double[] win; //chance of winning the game
+        final double[] die; //chance of being the player who dies in the game
+
+        Outcome(int players) {
+            win = new double[players];
+            die = new double[players];
+        }
+    }
+
+    /** Constructor
+     * Builds every player's chain (each slot of each state, with the board's precomputed moves)
+     * @param board - the board
+     */
+    private OddsSolver(BoardView board) {
+        moves = board instanceof TransitionTable ? (TransitionTable) board : null;
+        lastTile = board.getTileNumber()-1;
+        int highestPenalty = 0;
+        if (moves != null) {
+            for (int position=0; position<lastTile; position++) {
+                for (int sum=TransitionTable.MIN_DICE; sum<=TransitionTable.MAX_DICE; sum++) {
+                    int effect = TransitionTable.getEffect(moves.getMove(position, sum));
+                    if (effect != TransitionTable.EFFECT_DEATH) {
+                        highestPenalty = Math.max(highestPenalty, effect);
+                    }
+                }
+            }
+        }
+        penaltyLevels = highestPenalty + 1;
+        long chainStates = (long) lastTile * penaltyLevels * 2;
+        states = moves == null || chainStates > MAX_CHAIN_STATES ? 0 : (int) chainStates;
+        finishProb = new double[states];
+        targets = new int[states][];
+        probs = new double[states][];
+        deaths = new boolean[states][];
+        for (int s=0; s<states; s++) {buildSlot(s);}
+        freshCups = new HashMap<>();
+        table = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Odds> eldest) {
+                return size() > TABLE_CAPACITY;
+            }
+        };
+    }
+
+    /**
+     * @param board - a board
+     * @return the solver of the board (created on first use, then shared)
+     */
+    public static OddsSolver forBoard(BoardView board) {
+        synchronized (SOLVERS) {
+            return SOLVERS.computeIfAbsent(board, OddsSolver::new);
+        }
+    }
+
+    //Methods
+    /**
+     * @return index of the chain state
+     */
+    private int state(int position, int penalty, boolean instant) {
+        return (position*penaltyLevels + penalty)*2 + (instant ? 1 : 0);
+    }
+
+    /**
+     * Computes the outcomes of one slot of a player in a chain state
+     * A penalized player only lowers the penalty; the others roll the dice (sums 2 to 12, with
+     * 1 to 6 ways each), and 3+6 is an instant win while the player is allowed one
+     * @param s - the chain state
+     */
+    private void buildSlot(int s) {
+        int instant = s % 2, penalty = s / 2 % penaltyLevels, position = s / 2 / penaltyLevels;
+        if (penalty > 0) {
+            targets[s] = new int[] {state(position, penalty-1, instant == 1)};
+            probs[s] = new double[] {1};
+            deaths[s] = new boolean[1];
+            return;
+        }
+        int sums = TransitionTable.MAX_DICE - TransitionTable.MIN_DICE + 1;
+        targets[s] = new int[sums];
+        probs[s] = new double[sums];
+        deaths[s] = new boolean[sums];
+        for (int sum=TransitionTable.MIN_DICE; sum<=TransitionTable.MAX_DICE; sum++) {
+            int o = sum - TransitionTable.MIN_DICE;
+            int ways = 6 - Math.abs(sum - 7);
+            if (instant == 1 && sum == INSTANT_SUM) {
+                ways -= INSTANT_WEIGHT;
+                finishProb[s] += INSTANT_WEIGHT / 36.0;
+            }
+            int move = moves.getMove(position, sum);
+            int landing = TransitionTable.getLanding(move);
+            int effect = TransitionTable.getEffect(move);
+            if (landing == lastTile) { //finished: no target
+                finishProb[s] += ways / 36.0;
+                targets[s][o] = s;
+                continue;
+            }
+            deaths[s][o] = effect == TransitionTable.EFFECT_DEATH;
+            int penaltyAfter = effect == TransitionTable.EFFECT_DEATH ? 0 : effect;
+            targets[s][o] = state(landing, penaltyAfter, false);
+            probs[s][o] = ways / 36.0;
+        }
+    }
+
+    /**
+     * Advances a player's distribution by one slot
+     * @param from - chances of each chain state
+     * @param to - where the next distribution is written (overwritten)
+     * @param harmless - true if death tiles are harmless (a player already died in this game)
+     * @param events - set to the chance of reaching the end and of dying in this slot
+     */
+    private void step(double[] from, double[] to, boolean harmless, double[] events) {
+        Arrays.fill(to, 0);
+        double finished = 0, died = 0;
+        for (int s=0; s<states; s++) {
+            double p = from[s];
+            if (p == 0) {continue;}
+            finished += p * finishProb[s];
+            int[] target = targets[s];
+            double[] prob = probs[s];
+            boolean[] death = deaths[s];
+            for (int o=0; o<target.length; o++) {
+                if (death[o] && !harmless) {died += p * prob[o];}
+                else {to[target[o]] += p * prob[o];}
+            }
+        }
+        events[0] = finished;
+        events[1] = died;
+    }
+
+    /**
+     * Builds finishTimes, if needed
+     * Its size (and so the work of each finishDistribution) is bounded by MAX_FINISH_TIMES
+     * @return false if some state takes longer than MAX_SLOTS, or than MAX_FINISH_TIMES / states
+     *         slots, to finish
+     */
+    private boolean buildFinishTimes() {
+        if (finishTimes != null) {return true;}
+        if (finishTimesTooLong) {return false;}
+        int slots = Math.min(MAX_SLOTS, MAX_FINISH_TIMES / states);
+        double[][] times = new double[slots][];
+        double[] left = new double[states]; //chance of not having finished yet, from each state
+        Arrays.fill(left, 1);
+        for (int t=0; t<slots; t++) {
+            double[] now = new double[states];
+            double maxLeft = 0;
+            for (int s=0; s<states; s++) {
+                if (t == 0) {
+                    now[s] = finishProb[s];
+                } else {
+                    double[] before = times[t-1];
+                    int[] target = targets[s];
+                    double[] prob = probs[s];
+                    for (int o=0; o<target.length; o++) {now[s] += prob[o] * before[target[o]];}
+                }
+                left[s] -= now[s];
+                maxLeft = Math.max(maxLeft, left[s]);
+            }
+            times[t] = now;
+            if (maxLeft < EPSILON) {
+                finishTimes = Arrays.copyOf(times, t+1);
+                return true;
+            }
+        }
+        finishTimesTooLong = true;
+        return false;
+    }
+
+    /**
+     * Chance of finishing in each of the next slots, with harmless death tiles
+     * @param distribution - chances of each chain state (not normalized)
+     * @return chance[t] == chance of reaching the end in exactly t+1 slots
+     */
+    private double[] finishDistribution(double[] distribution) {
+        double[] chance = new double[finishTimes.length];
+        for (int s=0; s<states; s++) {
+            double p = distribution[s];
+            if (p == 0) {continue;}
+            for (int t=0; t<chance.length; t++) {chance[t] += p * finishTimes[t][s];}
+        }
+        return chance;
+    }
+
+    /**
+     * Race to the last tile: the first to finish wins (earlier slot, or the same slot earlier in
+     * the turn order)
+     * @param finish - finish[i] == finishDistribution of the i-th player in turn order
+     * @param mass - mass[i] == total chance of the i-th player's distribution
+     * @return chance of each player winning (joint with every player's mass)
+     */
+    private static double[] race(double[][] finish, double[] mass) {
+        int n = finish.length;
+        double[] left = mass.clone(); //left[i] == chance of i not having finished yet
+        double[] win = new double[n];
+        for (int t=0; t<finish[0].length; t++) {
+            for (int i=0; i<n; i++) {
+                if (finish[i][t] == 0) {continue;}
+                double others = 1;
+                for (int j=0; j<n; j++) {
+                    //players before i already played slot t, the others are still at slot t-1
+                    if (j != i) {others *= left[j] - (j < i ? finish[j][t] : 0);}
+                }
+                win[i] += finish[i][t] * others;
+            }
+            for (int i=0; i<n; i++) {left[i] -= finish[i][t];}
+        }
+        return win;
+    }
+
+    /**
+     * Solves a game from the given chain states
+     * @param start - chain state of each remaining player, in turn order (next player first)
+     * @param playOrder - play order of each of those players (breaks ties for the last place)
+     * @param deathOccurred - true if a player already died in this game
+     * @param deadline - System.nanoTime() after which the sweep gives up
+     * @return the game's outcome, in turn order, or null if the game is too long to follow or the
+     *         deadline passed
+     */
+    private Outcome solveGame(int[] start, int[] playOrder, boolean deathOccurred, long deadline) {
+        int n = start.length;
+        Outcome outcome = new Outcome(n);
+        if (!buildFinishTimes()) {return null;}
+        if (deathOccurred) { //only the race is left
+            double[][] finish = new double[n][];
+            for (int i=0; i<n; i++) {
+                finish[i] = new double[finishTimes.length];
+                for (int t=0; t<finish[i].length; t++) {finish[i][t] = finishTimes[t][start[i]];}
+            }
+            double[] mass = new double[n];
+            Arrays.fill(mass, 1);
+            System.arraycopy(race(finish, mass), 0, outcome.win, 0, n);
+            return outcome;
+        }
+
+        //Sweep over the slots while nobody finished or died (every player's distribution is
+        //conditioned on that, so the joint chance of any situation is a product)
+        double[][] clean = new double[n][states];
+        double[] next = new double[states];
+        double[] mass = new double[n];
+        double[][] finish = new double[n][]; //finish distributions, dropped when a player moves
+        double[] events = new double[2];
+        for (int i=0; i<n; i++) {clean[i][start[i]] = 1; mass[i] = 1;}
+        for (int slot=0; slot<MAX_SLOTS; slot++) {
+            for (int i=0; i<n; i++) {
+                if (System.nanoTime() > deadline) {return null;}
+                step(clean[i], next, false, events);
+                double others = 1;
+                for (int j=0; j<n; j++) {if (j != i) {others *= mass[j];}}
+
+                if (events[0] > 0) { //i wins the game, the last player dies
+                    outcome.win[i] += events[0] * others;
+                    addLastPlace(clean, i, playOrder, events[0], outcome.die);
+                }
+                if (events[1] > 0) { //i dies, the others race from where they are
+                    outcome.die[i] += events[1] * others;
+                    if (n == 2) { //ends the cup, the other player gets the point
+                        outcome.win[1-i] += events[1] * others;
+                    } else {
+                        double[][] raceFinish = new double[n-1][];
+                        double[] raceMass = new double[n-1];
+                        for (int k=0; k<n-1; k++) { //turn order after i
+                            int j = (i + 1 + k) % n;
+                            if (finish[j] == null) {finish[j] = finishDistribution(clean[j]);}
+                            raceFinish[k] = finish[j];
+                            raceMass[k] = mass[j];
+                        }
+                        double[] raceWin = race(raceFinish, raceMass);
+                        for (int k=0; k<n-1; k++) {
+                            outcome.win[(i + 1 + k) % n] += events[1] * raceWin[k];
+                        }
+                    }
+                }
+
+                double[] swap = clean[i]; clean[i] = next; next = swap;
+                mass[i] -= events[0] + events[1];
+                finish[i] = null;
+            }
+            double running = 1;
+            for (double m : mass) {running *= m;}
+            if (running < EPSILON) {return outcome;}
+        }
+        return null;
+    }
+
+    /**
+     * Adds the chance of each player being the last one when a player wins the game
+     * (lowest position; on a tie, the last in play order)
+     * @param clean - the players' distributions at that moment
+     * @param winner - the winner, in turn order
+     * @param playOrder - play order of each player
+     * @param chance - chance of the win
+     * @param die - where the chances are added
+     */
+    private void addLastPlace(double[][] clean, int winner, int[] playOrder, double chance,
+                              double[] die) {
+        int n = clean.length;
+        double[][] above = new double[n][lastTile+1]; //above[j][p] == chance of j being past p
+        double[][] atPosition = new double[n][lastTile];
+        for (int j=0; j<n; j++) {
+            for (int s=0; s<states; s++) {atPosition[j][s / 2 / penaltyLevels] += clean[j][s];}
+            for (int p=lastTile-1; p>=0; p--) {above[j][p] = above[j][p+1] + atPosition[j][p];}
+        }
+        for (int d=0; d<n; d++) {
+            if (d == winner) {continue;}
+            double last = 0;
+            for (int p=0; p<lastTile; p++) {
+                if (atPosition[d][p] == 0) {continue;}
+                double others = atPosition[d][p];
+                for (int j=0; j<n; j++) {
+                    if (j == d || j == winner) {continue;}
+                    //j survives if it's ahead, or on the same tile and earlier in play order
+                    others *= playOrder[j] < playOrder[d] ? above[j][p] : above[j][p+1];
+                }
+                last += others;
+            }
+            die[d] += chance * last;
+        }
+    }
+
+    /**
+     * Odds of winning the cup from the start of a new game
+     * @param players - number of alive players
+     * @param deadline - System.nanoTime() after which the solution gives up
+     * @return odds of each player, in play order, or null if a game is too long to follow or the
+     *         deadline passed
+     */
+    private double[] freshCup(int players, long deadline) {
+        if (players == 1) {return new double[] {1};}
+        double[] cup = freshCups.get(players);
+        if (cup != null) {return cup;}
+        int[] start = new int[players], playOrder = new int[players];
+        for (int i=0; i<players; i++) {start[i] = state(0, 0, true); playOrder[i] = i;}
+        Outcome game = solveGame(start, playOrder, false, deadline);
+        if (game == null) {return null;}
+        double[] rest = freshCup(players-1, deadline);
+        if (rest == null) {return null;}
+        cup = new double[players];
+        for (int d=0; d<players; d++) { //d dies, the others keep their order
+            for (int i=0; i<players; i++) {
+                if (i != d) {cup[i] += game.die[d] * rest[i < d ? i : i-1];}
+            }
+        }
+        freshCups.put(players, cup);
+        return cup;
+    }
+
+    /**
+     * Computes the odds of every remaining player
+     * pre: !game.isCupOver()
+     * @param game - the game
+     * @return the odds, exact (if they can be solved within EXACT_NANOS) or sampled
+     */
+    public synchronized Odds solve(Gameplay game) {
+        int size = game.getSize();
+        int n = 0;
+        for (int i=0; i<size; i++) {if (!game.getDeathCertificate(i)) {n++;}}
+        if (states == 0 || n > MAX_EXACT_PLAYERS) {return sample(game, n);}
+
+        //Remaining players in turn order (from the next player) and their chain states
+        //The next alivePlayers-turnNumber rolls of the game may still be instant wins
+        int[] turnOrder = new int[n], start = new int[n];
+        int instantRolls = game.getAlivePlayers() - game.getTurnNumber();
+        StringBuilder key = new StringBuilder(4*n + 1);
+        for (int k=0, i=game.getNextPlayerIndex(); k<n; i=(i+1)%size) {
+            if (game.getDeathCertificate(i)) {continue;}
+            turnOrder[k] = i;
+            start[k] = state(game.getPlayerSquare(i), game.getPlayerPenalty(i), k < instantRolls);
+            key.append((char) (i >>> 16)).append((char) i)
+                    .append((char) (start[k] >>> 16)).append((char) start[k]);
+            k++;
+        }
+        key.append(game.isDeathOccurred() ? 'D' : '-');
+        Odds odds = table.get(key.toString());
+        if (odds != null) {return odds;}
+
+        int[] players = turnOrder.clone();
+        Arrays.sort(players);
+        int[] playOrder = new int[n]; //rank of each player (in turn order) in the play order
+        for (int k=0; k<n; k++) {playOrder[k] = Arrays.binarySearch(players, turnOrder[k]);}
+        long deadline = System.nanoTime() + EXACT_NANOS;
+        Outcome current = solveGame(start, playOrder, game.isDeathOccurred(), deadline);
+        double[] rest = current == null ? null
+                : freshCup(game.isDeathOccurred() ? n : n-1, deadline);
+        if (rest == null) {return sample(game, n);}
+
+        double[] gameOdds = new double[n], cupOdds = new double[n];
+        for (int k=0; k<n; k++) {
+            gameOdds[playOrder[k]] = current.win[k];
+            if (game.isDeathOccurred()) { //the next game starts with the same players
+                cupOdds[playOrder[k]] = rest[playOrder[k]];
+                continue;
+            }
+            for (int i=0; i<n; i++) { //k dies in this game
+                if (i != playOrder[k]) {
+                    cupOdds[i] += current.die[k] * rest[i < playOrder[k] ? i : i-1];
+                }
+            }
+        }
+        odds = new Odds(players, gameOdds, cupOdds, -1);
+        table.put(key.toString(), odds);
+        return odds;
+    }
+
+    /**
+     * Estimates the odds by playing the rest of the cup on copies of the game, with random dice,
+     * for SAMPLE_NANOS
+     * @param game - the game
+     * @param n - number of remaining players
+     * @return the estimated odds (the cup odds are unknown if no cup could be finished in time)
+     */
+    private Odds sample(Gameplay game, int n) {
+        int size = game.getSize();
+        int[] players = new int[n];
+        int[] rank = new int[size]; //rank[i] == position of player i in players
+        for (int i=0, k=0; i<size; i++) {
+            if (!game.getDeathCertificate(i)) {rank[i] = k; players[k++] = i;}
+        }
+        long[] gameWins = new long[n], cupWins = new long[n];
+        long games = 0, cups = 0;
+        RandomDice dice = new RandomDice(SEED);
+        long deadline = System.nanoTime() + SAMPLE_NANOS;
+        while (cups < MAX_SAMPLES && System.nanoTime() < deadline) {
+            Gameplay copy = game.copy();
+            boolean gameOver = false;
+            while (!copy.isCupOver() && System.nanoTime() < deadline) {
+                int mover = copy.getNextPlayerIndex();
+                copy.playNextTurn(dice);
+                boolean someoneWon = copy.isCupOver()
+                        || copy.getAlivePlayers() < game.getAlivePlayers();
+                if (!gameOver && someoneWon) {
+                    gameOver = true;
+                    int winner = copy.isCupOver() ? copy.searchPlayer(copy.getWinnerId()) : mover;
+                    gameWins[rank[winner]]++;
+                    games++;
+                }
+            }
+            if (copy.isCupOver()) {
+                cupWins[rank[copy.searchPlayer(copy.getWinnerId())]]++;
+                cups++;
+            }
+        }
+        double[] gameOdds = games == 0 ? null : new double[n];
+        double[] cupOdds = cups == 0 ? null : new double[n];
+        for (int k=0; k<n; k++) {
+            if (games > 0) {gameOdds[k] = (double) gameWins[k] / games;}
+            if (cups > 0) {cupOdds[k] = (double) cupWins[k] / cups;}
+        }
+        return new Odds(players, gameOdds, cupOdds, games);
+    }
+}
@@ -0,0 +1,172 @@
+/** OUTPUTWRITER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Writes the program output into a large reusable buffer
+ * Messages are written as pre-encoded fragments and numbers are converted to text in place,
+ * so no format strings are parsed and nothing is boxed
+ * The buffer is only sent when it is full or when flush() is called, unless the writer is
+ * interactive, in which case every line is sent as soon as it ends
+ */
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class OutputWriter implements Flushable {
+    //Constants
+    private static final int BUFFER_SIZE = 1 << 16; //bytes sent at once
+    private static final int MAX_LONG_DIGITS = 20; //"-9223372036854775808"
+
+    //Instance variables
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int size; //number of bytes waiting in the buffer
+    private final boolean interactive; //flush after every line?
+
+    /** Constructor
+     * @param out - where the output is sent
+     * @param interactive - true if every line must be sent as soon as it ends
+     */
+    public OutputWriter(OutputStream out, boolean interactive) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.size = 0;
+        this.interactive = interactive;
+    }
+
+    /**
+     * Pre-encodes a message fragment
+     * @param text - the fragment
+     * @return the fragment's bytes, to be written with write(byte[])
+     */
+    public static byte[] fragment(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Methods
+    /**
+     * Makes room in the buffer, sending it if needed
+     * @param bytes - how many bytes will be written
+     */
+    private void ensure(int bytes) {
+        if (size + bytes > buffer.length) {send();}
+    }
+
+    /**
+     * Writes a pre-encoded fragment
+     * @param fragment - the fragment (see fragment(String))
+     */
+    public void write(byte[] fragment) {
+        if (fragment.length > buffer.length) {
+            send();
+            try {out.write(fragment);} catch (IOException e) {throw new UncheckedIOException(e);}
+            return;
+        }
+        ensure(fragment.length);
+        System.arraycopy(fragment, 0, buffer, size, fragment.length);
+        size += fragment.length;
+    }
+
+    /**
+     * Writes a single character (UTF-8)
+     * @param c - the character
+     */
+    public void write(char c) {
+        ensure(3);
+        if (c < 0x80) {
+            buffer[size++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[size++] = (byte) (0xC0 | (c >> 6));
+            buffer[size++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            buffer[size++] = (byte) (0xE0 | (c >> 12));
+            buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[size++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Writes a text (UTF-8), e.g. a player id
+     * @param text - the text
+     */
+    public void write(String text) {
+        boolean ascii = text.length() <= buffer.length;
+        for (int i=0; ascii && i<text.length(); i++) {ascii = text.charAt(i) < 0x80;}
+        if (!ascii) { //may have surrogate pairs (or not fit in the buffer)
+            write(text.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ensure(text.length());
+        for (int i=0; i<text.length(); i++) {buffer[size++] = (byte) text.charAt(i);}
+    }
+
+    /**
+     * Writes an integer in decimal
+     * @param value - the integer
+     */
+    public void write(int value) {
+        write((long) value);
+    }
+
+    /**
+     * Writes an integer in decimal
+     * @param value - the integer
+     */
+    public void write(long value) {
+        ensure(MAX_LONG_DIGITS);
+        if (value < 0) {buffer[size++] = '-';}
+        else {value = -value;} //digits are taken from the negative value, which can't overflow
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {digits++;}
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' - value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    /**
+     * Ends the current line
+     */
+    public void endLine() {
+        ensure(1);
+        buffer[size++] = '\n';
+        if (interactive) {flush();}
+    }
+
+    /**
+     * Writes a fragment and ends the line
+     * @param fragment - the fragment (see fragment(String))
+     */
+    public void writeLine(byte[] fragment) {
+        write(fragment);
+        endLine();
+    }
+
+    /**
+     * Sends the buffered bytes to the output stream
+     */
+    private void send() {
+        try {
+            out.write(buffer, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size = 0;
+    }
+
+    /**
+     * Sends everything written so far
+     */
+    @Override
+    public void flush() {
+        send();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,8 +2,8 @@
  * @author Afonso Brás Sousa
  * @author Alexandre Cristóvão
  * Initializes each player
- * Object with 6 variables stored: color (char), position (int), penalty (int), score (int),
- * order of death (int) and order of play (int)
+ * Object with 7 variables stored: id (String), color (char), position (int), penalty (int),
+ * score (int), order of death (int) and order of play (int)
  */
 
 public class Player {
@@ -14,7 +14,8 @@ public class Player {
     private static final int START_DEATHORDER = 0;
 
     //Variables that define each player
-    private final char color; //Pre: unique character ('A' - 'Z')
+    private final String id; //Pre: unique id (one capital letter in the classic game)
+    private final char color; //first character of the id
     private int position; //Pre: >=0 && <=Board.tileNumber-1
     private int penalty; //Pre: >=0
     private int score; //Pre: >=0
@@ -28,7 +29,18 @@ public class Player {
      * pre: color must be a unique capital letter
      */
     public Player(char color, int order) {
-        this.color = color;
+        this(String.valueOf(color), order);
+    }
+
+    /** Constructor
+     * Creates player object
+     * @param id - the player's id
+     * @param order - integer representing the player's playing order
+     * pre: id must be unique and not empty
+     */
+    public Player(String id, int order) {
+        this.id = id;
+        this.color = id.charAt(0);
         this.position = START_POSITION; //assumes default position
         this.penalty = START_PENALTY; //assumes default penallty
         this.score = START_SCORE; //assumes default score
@@ -38,7 +50,14 @@ public class Player {
 
     //Methods
     /** Getters
-     * @return char - the player's color
+     * @return String - the player's id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return char - the player's color (first character of the id)
      */
     public char getColor() {
         return color;
@@ -70,6 +89,11 @@ public class Player {
         return penalty==0;
     }
 
+    /**
+     * @return int - how many turns the player still has to skip
+     */
+    public int getPenalty() {return penalty;}
+
     /**
      * @return int - the order in which the player plays
      */
@@ -94,6 +118,16 @@ public class Player {
         penalty--;
     }
 
+    /**
+     * Lowers the player's penalty by several turns at once
+     * @param turns - how many turns were skipped
+     * pre: player is alive
+     * pre: turns >= 0 && turns <= penalty
+     */
+    public void lowerPenalty(int turns) {
+        penalty -= turns;
+    }
+
     /**
      * Applies a penalty to the player
      * @param penalty - the penalty to be applied
@@ -116,6 +150,20 @@ public class Player {
         deathOrder = (gamesPlayed+1)*-1;
     }
 
+    /**
+     * Restores the player's state from a snapshot (see TurnJournal)
+     * @param position - the saved position
+     * @param penalty - the saved penalty
+     * @param score - the saved score
+     * @param deathOrder - the saved order of death
+     */
+    public void restore(int position, int penalty, int score, int deathOrder) {
+        this.position = position;
+        this.penalty = penalty;
+        this.score = score;
+        this.deathOrder = deathOrder;
+    }
+
     /** Comparers
      */
 
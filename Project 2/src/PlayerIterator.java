@@ -5,10 +5,11 @@
  * accessing or managing the array directly
  */
 
+import java.util.Arrays;
+import java.util.Iterator;
+
 public class PlayerIterator {
-    private final Player[] players;
-    private final int size;
-    private int nextIndex;
+    private final Iterator<Player> players;
 
     /**
      * Constructor
@@ -16,9 +17,15 @@ public class PlayerIterator {
      * @param size - the size of the array to be listed
      */
     public PlayerIterator(Player[] players, int size) {
+        this(Arrays.asList(players).subList(0, size).iterator());
+    }
+
+    /**
+     * Constructor
+     * @param players - the players to be listed, in order (e.g. of a PlayerOrder)
+     */
+    public PlayerIterator(Iterator<Player> players) {
         this.players = players;
-        this.size = size;
-        this.nextIndex = 0;
     }
 
     //Methods
@@ -26,13 +33,13 @@ public class PlayerIterator {
      * @return true if there is any element left to list
      */
     public boolean hasNext() {
-        return nextIndex < size;
+        return players.hasNext();
     }
 
     /**
      * @return the next player object in the array
      */
     public Player next() {
-        return players[nextIndex++];
+        return players.next();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+/** PLAYERORDER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Players kept sorted by a comparator (e.g. the ranking), updated one player at a time without
+ * creating objects, so turns don't leave garbage behind
+ * Small orders (the classic game) are a sorted array: a change is a binary search and one array
+ * copy of the few players in between
+ * Large rosters would copy most of the array on every move, so larger orders are a treap (a
+ * search tree balanced by random priorities) over arrays indexed by play order, which finds each
+ * player's place in O(log n); its players are also linked in order
+ * Either way the first player is found in O(1) and k players are listed in O(k)
+ * A player is removed before a change that affects the order and added back after it
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+public class PlayerOrder {
+    //Constants
+    private static final int ARRAY_LIMIT = 64; //orders of up to this many players are arrays
+    private static final int NONE = -1; //no player (empty tree or end of the order)
+    private static final long SEED = 1; //priorities are random, but the same in every game
+
+    //Instance variables
+    private final Player[] players; //players array in order of play
+    private final Comparator<Player> comparator; //the order (must be total)
+    private final Player[] sorted; //the players in order, if small (null if kept in the tree)
+    private final int[] priority; //tree priority of each player (higher is nearer the root)
+    private final int[] left; //left[i] == left child of player i in the tree
+    private final int[] right; //right[i] == right child of player i in the tree
+    private final int[] next; //next[i] == player after player i in the order
+    private final int[] previous; //previous[i] == player before player i in the order
+    private int root;
+    private int first; //first player of the order
+    private int count; //number of players in the order
+    private int before; //player before the one being added (set while it's added)
+    private int after; //player after the one being added (set while it's added)
+
+    /** Constructor
+     * Creates an empty order
+     * @param players - players array in order of play (the order holds some or all of them)
+     * @param comparator - the order
+     *                   - pre: total (only the same player compares as 0)
+     */
+    public PlayerOrder(Player[] players, Comparator<Player> comparator) {
+        this.players = players;
+        this.comparator = comparator;
+        int size = players.length;
+        if (size <= ARRAY_LIMIT) {
+            sorted = new Player[size];
+            priority = left = right = next = previous = null;
+        } else {
+            sorted = null;
+            priority = new int[size];
+            SplittableRandom random = new SplittableRandom(SEED);
+            for (int i=0; i<size; i++) {priority[i] = random.nextInt();}
+            left = new int[size];
+            right = new int[size];
+            next = new int[size];
+            previous = new int[size];
+        }
+        clear();
+    }
+
+    //Methods
+    /**
+     * Removes every player
+     */
+    public void clear() {
+        if (sorted != null) {Arrays.fill(sorted, null);}
+        root = NONE;
+        first = NONE;
+        count = 0;
+    }
+
+    /**
+     * @return number of players in the order
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the first player of the order
+     * pre: size() > 0
+     */
+    public Player getFirst() {
+        return sorted != null ? sorted[0] : players[first];
+    }
+
+    /**
+     * Adds a player at their place in the order
+     * @param player - the player to be added
+     *               - pre: not in the order
+     */
+    public void add(Player player) {
+        if (sorted != null) {
+            int slot = -Arrays.binarySearch(sorted, 0, count, player, comparator) - 1;
+            System.arraycopy(sorted, slot, sorted, slot+1, count-slot);
+            sorted[slot] = player;
+            count++;
+            return;
+        }
+        int node = player.getPlayOrder();
+        left[node] = NONE;
+        right[node] = NONE;
+        before = NONE;
+        after = NONE;
+        root = insert(root, node);
+
+        //Links the player between their neighbours (found while they were inserted)
+        previous[node] = before;
+        next[node] = after;
+        if (before == NONE) {first = node;}
+        else {next[before] = node;}
+        if (after != NONE) {previous[after] = node;}
+        count++;
+    }
+
+    /**
+     * Removes a player from the order
+     * @param player - the player to be removed
+     *               - pre: in the order and not changed since they were added
+     */
+    public void remove(Player player) {
+        if (sorted != null) {
+            int slot = Arrays.binarySearch(sorted, 0, count, player, comparator);
+            count--;
+            System.arraycopy(sorted, slot+1, sorted, slot, count-slot);
+            sorted[count] = null;
+            return;
+        }
+        int node = player.getPlayOrder();
+        root = delete(root, node);
+
+        if (previous[node] == NONE) {first = next[node];}
+        else {next[previous[node]] = next[node];}
+        if (next[node] != NONE) {previous[next[node]] = previous[node];}
+        count--;
+    }
+
+    /**
+     * Adds a player to a subtree, keeping the priorities in heap order
+     * Records the player's neighbours in the order (the last nodes passed on each side)
+     * @param tree - root of the subtree (NONE if empty)
+     * @param node - the player to be added
+     * @return the new root of the subtree
+     */
+    private int insert(int tree, int node) {
+        if (tree == NONE) {return node;}
+        if (comparator.compare(players[node], players[tree]) < 0) {
+            after = tree;
+            left[tree] = insert(left[tree], node);
+            if (priority[left[tree]] > priority[tree]) {tree = rotateRight(tree);}
+        } else {
+            before = tree;
+            right[tree] = insert(right[tree], node);
+            if (priority[right[tree]] > priority[tree]) {tree = rotateLeft(tree);}
+        }
+        return tree;
+    }
+
+    /**
+     * Removes a player from a subtree
+     * @param tree - root of the subtree
+     * @param node - the player to be removed
+     *             - pre: in the subtree
+     * @return the new root of the subtree
+     */
+    private int delete(int tree, int node) {
+        if (tree == node) {return merge(left[node], right[node]);}
+        if (comparator.compare(players[node], players[tree]) < 0) {
+            left[tree] = delete(left[tree], node);
+        } else {
+            right[tree] = delete(right[tree], node);
+        }
+        return tree;
+    }
+
+    /**
+     * Joins two subtrees
+     * @param low - root of the first subtree (NONE if empty)
+     * @param high - root of the second subtree, whose players are all after the first one's
+     * @return the root of the joined tree
+     */
+    private int merge(int low, int high) {
+        if (low == NONE) {return high;}
+        if (high == NONE) {return low;}
+        if (priority[low] > priority[high]) {
+            right[low] = merge(right[low], high);
+            return low;
+        }
+        left[high] = merge(low, left[high]);
+        return high;
+    }
+
+    /**
+     * @param tree - root of a subtree with a left child
+     * @return the left child, now the root of the subtree
+     */
+    private int rotateRight(int tree) {
+        int child = left[tree];
+        left[tree] = right[child];
+        right[child] = tree;
+        return child;
+    }
+
+    /**
+     * @param tree - root of a subtree with a right child
+     * @return the right child, now the root of the subtree
+     */
+    private int rotateLeft(int tree) {
+        int child = right[tree];
+        right[tree] = left[child];
+        left[child] = tree;
+        return child;
+    }
+
+    /**
+     * pre: the order isn't changed while the iterator is used
+     * @return iterator with the players in order
+     */
+    public Iterator<Player> iterator() {
+        return new Iterator<Player>() {
+            private int slot = 0; //next place in the array
+            private int node = first; //next player in the tree
+
+            public boolean hasNext() {
+                return sorted != null ? slot < count : node != NONE;
+            }
+
+            public Player next() {
+                if (sorted != null) {return sorted[slot++];}
+                Player player = players[node];
+                node = next[node];
+                return player;
+            }
+        };
+    }
+}
@@ -0,0 +1,157 @@
+/** PLAYERROSTER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * The players of a cup, in order of play, with a hashed id -> play order lookup
+ * Ids can also be looked up by their UTF-8 bytes (e.g. straight from the command reader's buffer),
+ * in an open-addressing table of the ids' bytes, without creating a String
+ * Ids can have any number of characters; the classic game uses one capital letter per player
+ * Large rosters are streamed from a file with one id per line
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class PlayerRoster {
+    //Constants
+    private static final int INITIAL_SLOTS = 16; //initial size of the byte lookup table
+
+    //Instance variables
+    private final ArrayList<String> ids; //ids in order of play
+    private final HashMap<String, Integer> indexes; //id -> order of play
+    private final ArrayList<byte[]> idBytes; //UTF-8 bytes of the ids, in order of play
+    private int[] slots; //byte lookup table: order of play + 1 of the id in each slot, 0 if empty
+
+    /** Constructor
+     * Creates an empty roster
+     */
+    public PlayerRoster() {
+        ids = new ArrayList<>();
+        indexes = new HashMap<>();
+        idBytes = new ArrayList<>();
+        slots = new int[INITIAL_SLOTS];
+    }
+
+    /**
+     * Creates the roster of the classic game
+     * @param playerOrder - one character per player, in order of play
+     *                    - pre: unique characters
+     * @return the roster
+     */
+    public static PlayerRoster of(String playerOrder) {
+        PlayerRoster roster = new PlayerRoster();
+        for (int i=0; i<playerOrder.length(); i++) {
+            roster.add(String.valueOf(playerOrder.charAt(i)));
+        }
+        return roster;
+    }
+
+    /**
+     * Loads a roster file, one id per line (surrounding whitespace and blank lines are ignored)
+     * The file is read line by line, so only the ids themselves are kept in memory
+     * @param path - the path of the roster file (UTF-8)
+     * @return the roster
+     * @throws IOException - propagates file errors to the caller
+     * @throws IllegalArgumentException - if an id is repeated
+     */
+    public static PlayerRoster load(String path) throws IOException {
+        PlayerRoster roster = new PlayerRoster();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String id = line.trim();
+                if (!id.isEmpty()) {roster.add(id);}
+            }
+        }
+        return roster;
+    }
+
+    //Methods
+    /**
+     * Adds a player at the end of the order of play
+     * @param id - the player's id
+     *           - pre: not empty
+     * @throws IllegalArgumentException - if the id is already in the roster
+     */
+    public void add(String id) {
+        if (indexes.putIfAbsent(id, ids.size()) != null) {
+            throw new IllegalArgumentException("Repeated player id: " + id);
+        }
+        ids.add(id);
+        idBytes.add(id.getBytes(StandardCharsets.UTF_8));
+        if (2 * idBytes.size() > slots.length) { //keeps the table at most half full
+            slots = new int[2 * slots.length];
+            for (int i=0; i<idBytes.size(); i++) {insert(i);}
+        } else {
+            insert(idBytes.size() - 1);
+        }
+    }
+
+    /**
+     * Puts an id in the byte lookup table
+     * @param index - order of play of the id
+     */
+    private void insert(int index) {
+        byte[] id = idBytes.get(index);
+        int mask = slots.length - 1;
+        int slot = hash(id, id.length) & mask;
+        while (slots[slot] != 0) {slot = (slot + 1) & mask;}
+        slots[slot] = index + 1;
+    }
+
+    /**
+     * @param id - bytes of an id
+     * @param length - length of the id
+     * @return hash of the id's bytes
+     */
+    private static int hash(byte[] id, int length) {
+        int hash = 0;
+        for (int i=0; i<length; i++) {hash = 31*hash + id[i];}
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return number of players
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @param index - order of play
+     *              - pre: >=0 && <size()
+     * @return the id of the player
+     */
+    public String getId(int index) {
+        return ids.get(index);
+    }
+
+    /**
+     * Searches for a player by their id
+     * @param id - requested player's id
+     * @return order of play of the player, -1 if no player found
+     */
+    public int indexOf(String id) {
+        Integer index = indexes.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Searches for a player by the bytes of their id, without creating any objects
+     * @param id - requested player's id, UTF-8
+     * @param length - length of the id (the rest of the array is ignored)
+     * @return order of play of the player, -1 if no player found
+     */
+    public int indexOf(byte[] id, int length) {
+        int mask = slots.length - 1;
+        for (int slot=hash(id, length) & mask; slots[slot] != 0; slot=(slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            byte[] candidate = idBytes.get(index);
+            if (Arrays.equals(candidate, 0, candidate.length, id, 0, length)) {return index;}
+        }
+        return -1;
+    }
+}
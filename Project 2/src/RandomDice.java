@@ -0,0 +1,51 @@
+/** RANDOMDICE CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Seeded random dice, never running out of rolls
+ * Each dice is random.nextInt(6) + 1 of a SplittableRandom, first dice first: the same rolls the
+ * simulations drew by hand before, so the same seed still gives the same cups
+ */
+
+import java.util.SplittableRandom;
+
+public class RandomDice implements DiceSource {
+    //Constants
+    private static final int FACES = 6;
+
+    //Instance variables
+    private final SplittableRandom random;
+    private int dice1; //last roll
+    private int dice2;
+
+    /** Constructor
+     * @param seed - the seed of the rolls
+     */
+    public RandomDice(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /** Constructor
+     * @param random - the random generator the rolls are drawn from (not shared with other threads)
+     */
+    public RandomDice(SplittableRandom random) {
+        this.random = random;
+    }
+
+    //Methods
+    @Override
+    public boolean next() {
+        dice1 = random.nextInt(FACES) + 1;
+        dice2 = random.nextInt(FACES) + 1;
+        return true;
+    }
+
+    @Override
+    public int getDice1() {
+        return dice1;
+    }
+
+    @Override
+    public int getDice2() {
+        return dice2;
+    }
+}
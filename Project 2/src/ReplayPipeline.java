@@ -0,0 +1,396 @@
+/** REPLAYPIPELINE CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Command interpreter for bulk replays, as a three-stage pipeline (see Main.executeCmdLoop):
+ * a parser thread decodes the commands into the slots of one ring, the game thread (the caller)
+ * applies them to the game and describes each answer in the slots of a second ring, and an emitter
+ * thread formats the answers. Each stage only waits for the slowest one, not for all of them
+ * The stages share nothing but the rings (see SpscRing): the parser resolves player ids itself
+ * (the roster never changes) and each answer carries every value it prints, taken when its command
+ * was applied. Answers are formatted by the same Main methods and in the order of the commands, so
+ * the output is exactly the same as the interpreter's
+ * The emitter sends the output whenever it runs out of answers, so interactive input still works
+ * Commands aren't timed: the stats command answers that the statistics are off
+ */
+
+public class ReplayPipeline {
+    //Constants
+    private static final int CAPACITY = 1 << 10; //slots of each ring
+    private static final int IDLE_YIELDS = 32; //yields without answers before sending the output
+
+    //Command types (parser -> game)
+    private static final int CMD_PLAYER = 0;
+    private static final int CMD_SQUARE = 1;
+    private static final int CMD_STATUS = 2;
+    private static final int CMD_RANKING = 3;
+    private static final int CMD_DICE = 4;
+    private static final int CMD_ODDS = 5;
+    private static final int CMD_EXIT = 6;
+    private static final int CMD_REPLY = 7; //answered by the parser alone (invalid, stats...)
+    private static final int CMD_END = 8; //end of the input
+    private static final int CMD_FAILED = 9; //the input couldn't be decoded
+
+    //Answer types (game -> emitter)
+    private static final int ANS_MESSAGE = 0;
+    private static final int ANS_NEXT_PLAYER = 1;
+    private static final int ANS_SQUARE = 2;
+    private static final int ANS_STATUS = 3;
+    private static final int ANS_RANKING = 4;
+    private static final int ANS_ODDS = 5;
+    private static final int ANS_WINNER = 6;
+    private static final int ANS_END = 7;
+    private static final int ANS_FAILED = 8;
+
+    //Instance variables
+    private final Gameplay game;
+    private final CommandReader in;
+    private final OutputWriter out;
+    private final SpscRing<Command> commands;
+    private final SpscRing<Answer> answers;
+    private RuntimeException failure; //first failure of a stage (read after the stages end)
+
+    /** COMMAND CLASS
+     * A decoded command (slot of the parser's ring)
+     */
+    private static final class Command {
+        private int type;
+        private int player; //square and status: index of the player, -1 if there is none
+        private int diceLow;
+        private int diceHigh;
+        private byte[] message; //reply
+        private RuntimeException error; //failed
+    }
+
+    /** ANSWER CLASS
+     * An answer, with every value it prints (slot of the game's ring)
+     */
+    private static final class Answer {
+        private int type;
+        private byte[] message;
+        private String id; //the player the answer is about
+        private int value; //square, or 1 if the player can roll the dice
+        private int count; //lines of a ranking or of the odds
+        private String[] ids = new String[0];
+        private int[] scores = new int[0];
+        private int[] squares = new int[0]; //0: eliminated
+        private OddsSolver.Odds odds;
+        private RuntimeException error;
+
+        /**
+         * Makes room for the lines of a ranking or of the odds
+         * @param lines - number of lines
+         */
+        private void ensure(int lines) {
+            if (ids.length < lines) {
+                ids = new String[lines];
+                scores = new int[lines];
+                squares = new int[lines];
+            }
+            count = lines;
+        }
+    }
+
+    /** Constructor
+     * @param game - the game state
+     * @param in - user input reader, after the input header
+     *           - pre: doesn't flush the output (the emitter does)
+     * @param out - where the output is printed (only used by the emitter until run returns)
+     */
+    private ReplayPipeline(Gameplay game, CommandReader in, OutputWriter out) {
+        this.game = game;
+        this.in = in;
+        this.out = out;
+        this.commands = new SpscRing<>(CAPACITY, Command::new);
+        this.answers = new SpscRing<>(CAPACITY, Answer::new);
+    }
+
+    //Methods
+    /** Command interpreter
+     * Interprets and executes commands while cmd != exit, in three stages
+     * Prints output
+     * @param game - the game state
+     * @param in - user input reader
+     *           - pre: doesn't flush the output (the emitter does)
+     * @param out - where the output is printed
+     * @throws RuntimeException - the first failure of a stage (e.g. a malformed dice command, as
+     *                          in Main), after the answers to the commands before it are printed
+     */
+    static void run(Gameplay game, CommandReader in, OutputWriter out) {
+        new ReplayPipeline(game, in, out).run();
+    }
+
+    private void run() {
+        Thread parser = new Thread(this::parse, "ReplayPipeline-parser");
+        Thread emitter = new Thread(this::emit, "ReplayPipeline-emitter");
+        parser.setDaemon(true);
+        emitter.setDaemon(true);
+        parser.start();
+        emitter.start();
+        apply();
+        try {
+            parser.join();
+            emitter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (failure != null) {throw failure;}
+    }
+
+    /**
+     * Parser stage: decodes commands until exit, the end of the input or a malformed command
+     */
+    private void parse() {
+        boolean running = true;
+        while (running) {
+            Command command = commands.claim();
+            try {
+                running = decode(command);
+            } catch (RuntimeException e) {
+                command.type = CMD_FAILED;
+                command.error = e;
+                running = false;
+            }
+            commands.publish();
+        }
+    }
+
+    /**
+     * Reads and decodes the next command, with the same rules as Main.executeCmd
+     * @param command - where the command is decoded
+     * @return false if there are no commands left to read (exit or end of the input)
+     */
+    private boolean decode(Command command) {
+        if (!in.next()) {
+            command.type = CMD_END;
+            return false;
+        }
+        if (in.isCommand(Main.CMD_PLAYER)) {
+            if (in.getArgLength() != 0) {reply(command, Main.MSG_INVALID_COMMAND);}
+            else {command.type = CMD_PLAYER;}
+        } else if (in.isCommand(Main.CMD_SQUARE) || in.isCommand(Main.CMD_STATUS)) {
+            command.type = in.isCommand(Main.CMD_SQUARE) ? CMD_SQUARE : CMD_STATUS;
+            //the roster is read-only
+            command.player = game.searchPlayer(in.getArgBytes(), in.getArgLength());
+        } else if (in.isCommand(Main.CMD_RANKING)) {
+            command.type = CMD_RANKING;
+        } else if (in.isCommand(Main.CMD_DICE)) {
+            in.decodeDice(); //Pre: 2 integers
+            command.diceLow = Math.min(in.getDice1(), in.getDice2());
+            command.diceHigh = Math.max(in.getDice1(), in.getDice2());
+            if (!Main.isValidDice(command.diceLow, command.diceHigh)) {
+                reply(command, Main.MSG_INVALID_DICE);
+            } else {
+                command.type = CMD_DICE;
+            }
+        } else if (in.isCommand(Main.CMD_ODDS)) {
+            if (in.getArgLength() != 0) {reply(command, Main.MSG_INVALID_COMMAND);}
+            else {command.type = CMD_ODDS;}
+        } else if (in.isCommand(Main.CMD_STATS)) {
+            reply(command, Main.MSG_STATS_OFF);
+        } else if (in.isCommand(Main.CMD_EXIT)) {
+            command.type = CMD_EXIT;
+            return false;
+        } else {
+            reply(command, Main.MSG_INVALID_COMMAND);
+        }
+        return true;
+    }
+
+    private static void reply(Command command, byte[] message) {
+        command.type = CMD_REPLY;
+        command.message = message;
+    }
+
+    /**
+     * Game stage (the calling thread): applies the commands and describes their answers
+     * After a failure, the rest of the commands are dropped
+     */
+    private void apply() {
+        boolean running = true;
+        boolean failed = false;
+        while (running) {
+            Command command = commands.take();
+            int type = command.type;
+            running = type != CMD_EXIT && type != CMD_END && type != CMD_FAILED;
+            if (!failed) {
+                try {
+                    apply(command);
+                } catch (RuntimeException e) {
+                    Answer answer = answers.claim();
+                    answer.type = ANS_FAILED;
+                    answer.error = e;
+                    answers.publish();
+                    failed = true;
+                }
+            }
+            command.error = null;
+            commands.release();
+        }
+    }
+
+    /**
+     * Applies one command, with the same rules as Main.executeCmd
+     * @param command - the command
+     */
+    private void apply(Command command) {
+        if (command.type == CMD_DICE) {
+            if (game.isCupOver()) {message(Main.MSG_CUP_OVER);}
+            else {game.processNextTurn(command.diceLow, command.diceHigh);} //no answer
+            return;
+        }
+
+        Answer answer = answers.claim();
+        int index = command.player;
+        switch (command.type) {
+            case CMD_PLAYER:
+                if (game.isCupOver()) {setMessage(answer, Main.MSG_CUP_OVER);}
+                else {answer.type = ANS_NEXT_PLAYER; answer.id = game.getNextPlayerId();}
+                break;
+            case CMD_SQUARE:
+                if (index == -1) {setMessage(answer, Main.MSG_NONEXISTENT);}
+                else if (game.getDeathCertificate(index)) {setMessage(answer, Main.MSG_ELIMINATED);}
+                else {
+                    answer.type = ANS_SQUARE;
+                    answer.id = game.getPlayerId(index);
+                    answer.value = game.getPlayerSquare(index) + 1;
+                }
+                break;
+            case CMD_STATUS:
+                if (index == -1) {setMessage(answer, Main.MSG_NONEXISTENT);}
+                else if (game.isCupOver()) {setMessage(answer, Main.MSG_CUP_OVER);}
+                else if (game.getDeathCertificate(index)) {setMessage(answer, Main.MSG_ELIMINATED);}
+                else {
+                    answer.type = ANS_STATUS;
+                    answer.id = game.getPlayerId(index);
+                    answer.value = game.getPlayerStatus(index) ? 1 : 0;
+                }
+                break;
+            case CMD_RANKING:
+                answer.type = ANS_RANKING;
+                answer.ensure(game.getSize());
+                PlayerIterator it = game.rankIt();
+                for (int i=0; it.hasNext(); i++) {
+                    Player player = it.next();
+                    answer.ids[i] = player.getId();
+                    answer.scores[i] = player.getScore();
+                    answer.squares[i] = player.getDeathOrder() == 0 ? player.getPosition() + 1 : 0;
+                }
+                break;
+            case CMD_ODDS:
+                if (game.isCupOver()) {setMessage(answer, Main.MSG_CUP_OVER); break;}
+                answer.type = ANS_ODDS;
+                answer.odds = OddsSolver.forBoard(game.getBoard()).solve(game);
+                answer.ensure(answer.odds.size());
+                for (int i=0; i<answer.count; i++) {
+                    answer.ids[i] = game.getPlayerId(answer.odds.getPlayer(i));
+                }
+                break;
+            case CMD_EXIT:
+                if (game.isCupOver()) {answer.type = ANS_WINNER; answer.id = game.getWinnerId();}
+                else {setMessage(answer, Main.MSG_CUP_NOT_OVER);}
+                answers.publish();
+                answer = answers.claim();
+                answer.type = ANS_END;
+                break;
+            case CMD_REPLY:
+                setMessage(answer, command.message);
+                break;
+            case CMD_END:
+                answer.type = ANS_END;
+                break;
+            default: //CMD_FAILED
+                answer.type = ANS_FAILED;
+                answer.error = command.error;
+        }
+        answers.publish();
+    }
+
+    /**
+     * Publishes an answer made of a single message
+     */
+    private void message(byte[] message) {
+        setMessage(answers.claim(), message);
+        answers.publish();
+    }
+
+    private static void setMessage(Answer answer, byte[] message) {
+        answer.type = ANS_MESSAGE;
+        answer.message = message;
+    }
+
+    /**
+     * Emitter stage: formats the answers until the last one, sending the output whenever there
+     * are no answers waiting. After a failure (of the output or of another stage) the rest of
+     * the answers are dropped
+     */
+    private void emit() {
+        boolean running = true;
+        while (running) {
+            Answer answer = answers.poll();
+            for (int i=0; answer == null && i<IDLE_YIELDS; i++) { //the game may just be behind
+                Thread.yield();
+                answer = answers.poll();
+            }
+            if (answer == null) { //waiting for input: shows what was answered so far
+                flush();
+                answer = answers.take();
+            }
+            running = answer.type != ANS_END && answer.type != ANS_FAILED;
+            if (answer.type == ANS_FAILED && failure == null) {
+                flush(); //the answers before the failure are printed
+                if (failure == null) {failure = answer.error;}
+            }
+            if (failure == null) {
+                try {
+                    write(answer);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            answer.id = null; //the slot doesn't keep players or odds alive
+            answer.odds = null;
+            answer.error = null;
+            answers.release();
+        }
+        flush();
+    }
+
+    /**
+     * Formats one answer
+     * @param answer - the answer
+     */
+    private void write(Answer answer) {
+        switch (answer.type) {
+            case ANS_MESSAGE: out.writeLine(answer.message); break;
+            case ANS_NEXT_PLAYER: Main.writeNextPlayer(answer.id, out); break;
+            case ANS_SQUARE: Main.writeSquare(answer.id, answer.value, out); break;
+            case ANS_STATUS: Main.writeStatus(answer.id, answer.value != 0, out); break;
+            case ANS_RANKING:
+                for (int i=0; i<answer.count; i++) {
+                    Main.writeRank(answer.ids[i], answer.scores[i], answer.squares[i], out);
+                }
+                break;
+            case ANS_ODDS:
+                for (int i=0; i<answer.count; i++) {
+                    Main.writeOdds(answer.ids[i], answer.odds, i, out);
+                }
+                Main.writeOddsSource(answer.odds, out);
+                break;
+            case ANS_WINNER: Main.writeWinner(answer.id, out); break;
+            default: //ANS_END, ANS_FAILED: nothing to print
+        }
+    }
+
+    /**
+     * Sends the output formatted so far (unless the output already failed)
+     */
+    private void flush() {
+        if (failure != null) {return;}
+        try {
+            out.flush();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/** SESSIONMANAGER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Creates, finds and retires the games (sessions) hosted by a single process
+ * Each session is identified by a unique id; games on the same board share it through a BoardCache
+ * All methods are thread-safe; the games themselves are not (see GameServer)
+ */
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionManager {
+    //Instance variables
+    private final String boardFile; //path of the boards file used by every session
+    private final BoardCache boards; //boards shared by every session
+    private final ConcurrentHashMap<Long, Gameplay> sessions; //active sessions by id
+    private final AtomicLong nextId; //id of the next session
+
+    /** Constructor
+     * @param boardFile - the path of the boards file
+     *                  - pre: file exists and is in the correct format
+     * @param boardCacheSize - how many different boards are kept in memory
+     *                       - pre: >=1
+     */
+    public SessionManager(String boardFile, int boardCacheSize) {
+        this.boardFile = boardFile;
+        this.boards = new BoardCache(boardCacheSize);
+        this.sessions = new ConcurrentHashMap<>();
+        this.nextId = new AtomicLong(1);
+    }
+
+    /**
+     * Starts a new game
+     * @param playerOrder - string representing the players who'll play the game
+     *                    - pre: 3-10 unique capital letters
+     * @param boardNumber - which board of the boards file
+     *                    - pre: >=1
+     * @return the id of the new session
+     * @throws IOException - propagates file errors to the caller
+     */
+    public long create(String playerOrder, int boardNumber) throws IOException {
+        Gameplay game = new Gameplay(boards.getBoard(boardFile, boardNumber), playerOrder);
+        long id = nextId.getAndIncrement();
+        sessions.put(id, game);
+        return id;
+    }
+
+    /**
+     * @param id - the id of the requested session
+     * @return the session's game, or null if no session has that id
+     */
+    public Gameplay get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Ends a session
+     * @param id - the id of the session
+     * @return true if the session existed
+     */
+    public boolean retire(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    /**
+     * @return the number of active sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the board cache shared by every session
+     */
+    public BoardCache getBoards() {
+        return boards;
+    }
+}
@@ -0,0 +1,150 @@
+/** SIMULATIONSTATS CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Totals collected by the Simulator class over many cups
+ * Every total is an integer count, so merging partial totals gives the same result in any order
+ */
+
+import java.io.PrintStream;
+
+public class SimulationStats {
+    //Instance variables
+    private final String playerOrder; //players in order of play
+    private long cups; //cups played
+    private long games; //games played (each game gives exactly one point)
+    private long turns; //turns played
+    private final long[] cupWins; //cupWins[i] == cups won by player i
+    private final long[][] eliminations; //eliminations[i][g] == times player i died in game g+1
+
+    /** Constructor
+     * @param playerOrder - the players, in order of play
+     */
+    public SimulationStats(String playerOrder) {
+        this.playerOrder = playerOrder;
+        int size = playerOrder.length();
+        cupWins = new long[size];
+        eliminations = new long[size][size];
+    }
+
+    //Methods
+    /**
+     * Adds the result of a finished cup
+     * @param game - the game
+     *             - pre: game.isCupOver()
+     * @param cupTurns - how many turns the cup took
+     */
+    public void addCup(Gameplay game, long cupTurns) {
+        cups++;
+        turns += cupTurns;
+        PlayerIterator it = game.iterator();
+        for (int i=0; it.hasNext(); i++) {
+            Player player = it.next();
+            games += player.getScore();
+            if (player.getDeathOrder() != 0) {
+                eliminations[i][-player.getDeathOrder() - 1]++;
+            }
+        }
+        cupWins[game.searchPlayer(game.getWinnerId())]++; //ids may be longer than 1 character
+    }
+
+    /**
+     * Adds the result of a finished cup played by the array engine
+     * @param game - the game
+     *             - pre: game.isCupOver()
+     * @param cupTurns - how many turns the cup took
+     */
+    public void addCup(ArrayGameplay game, long cupTurns) {
+        cups++;
+        turns += cupTurns;
+        for (int i=0; i<game.getSize(); i++) {
+            games += game.getScore(i);
+            if (game.getDeathOrder(i) != 0) {
+                eliminations[i][-game.getDeathOrder(i) - 1]++;
+            }
+        }
+        cupWins[game.searchPlayer(game.getWinner())]++;
+    }
+
+    /**
+     * Adds the totals of another simulation of the same board and players
+     * @param other - the other totals
+     */
+    public void merge(SimulationStats other) {
+        cups += other.cups;
+        games += other.games;
+        turns += other.turns;
+        for (int i=0; i<cupWins.length; i++) {
+            cupWins[i] += other.cupWins[i];
+            for (int g=0; g<cupWins.length; g++) {
+                eliminations[i][g] += other.eliminations[i][g];
+            }
+        }
+    }
+
+    /**
+     * @return number of cups played
+     */
+    public long getCups() {
+        return cups;
+    }
+
+    /**
+     * @return number of games played
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return number of turns played
+     */
+    public long getTurns() {
+        return turns;
+    }
+
+    /**
+     * @param player - index of the player in order of play
+     * @return number of cups won by the player
+     */
+    public long getCupWins(int player) {
+        return cupWins[player];
+    }
+
+    /**
+     * @param player - index of the player in order of play
+     * @param game - game of the cup (1 = first game)
+     * @return number of cups in which the player was eliminated in that game
+     */
+    public long getEliminations(int player, int game) {
+        return eliminations[player][game-1];
+    }
+
+    /**
+     * Prints a report: cup-win rate of each player, average turns per game and how often each
+     * player was eliminated in each game of the cup
+     * @param out - where the report is printed
+     */
+    public void print(PrintStream out) {
+        out.printf("Cups: %d; games: %d; turns: %d\n", cups, games, turns);
+        out.printf("Average turns per game: %.3f\n", games == 0 ? 0.0 : (double) turns / games);
+        out.printf("Average games per cup: %.3f\n", cups == 0 ? 0.0 : (double) games / cups);
+        out.print("Player  Cup wins");
+        for (int g=1; g<cupWins.length; g++) {out.printf("  Out game %d", g);}
+        out.println();
+        for (int i=0; i<cupWins.length; i++) {
+            out.printf("%c      %8.4f%%", playerOrder.charAt(i), percent(cupWins[i]));
+            for (int g=0; g<cupWins.length-1; g++) {
+                out.printf("  %9.4f%%", percent(eliminations[i][g]));
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * @param count - number of cups
+     * @return percentage of all cups
+     */
+    private double percent(long count) {
+        return cups == 0 ? 0.0 : 100.0 * count / cups;
+    }
+}
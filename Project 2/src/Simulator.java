@@ -0,0 +1,215 @@
+/** SIMULATOR CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Plays many complete cups with random dice on every core (Monte Carlo simulation)
+ * Cups are split into fixed-size chunks; each chunk has its own random generator seeded from the
+ * simulation seed and the chunk number, so the results only depend on the seed, never on how
+ * many threads play the chunks
+ * Recorded dice (see RecordedDice) can be replayed instead: cups are played one after the other on
+ * a single thread, with the recording's rolls, until the recording ends
+ * Usage: Simulator [board number] [player order] [cups] [seed] [threads]
+ *        Simulator replay [recording] [board number] [player order]
+ */
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Simulator {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final int CHUNK = 4096; //cups per chunk (one random generator each)
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L; //spreads chunk numbers over seeds
+    private static final String REPLAY = "replay";
+
+    //Instance variables
+    private final BoardView board; //shared read-only board
+    private final String playerOrder;
+    private final boolean arrayEngine; //plays with ArrayGameplay instead of Gameplay
+
+    /** MAIN
+     * Runs a simulation and prints its report
+     * @throws IOException - if the boards file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(REPLAY)) {
+            replay(args);
+            return;
+        }
+        int boardNumber = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        String playerOrder = args.length > 1 ? args[1] : "ABC";
+        long cups = args.length > 2 ? Long.parseLong(args[2]) : 1_000_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+
+        TransitionTable board = new TransitionTable(
+                new DenseBoard(new BoardGen(BOARD_FILE_NAME, boardNumber).getBoard()));
+        Simulator simulator = new Simulator(board, playerOrder, true);
+
+        long start = System.nanoTime();
+        SimulationStats stats = simulator.run(cups, seed, threads);
+        long time = System.nanoTime() - start;
+
+        stats.print(System.out);
+        System.out.printf("Time: %d ms on %d threads (%.0f cups/s)\n",
+                time / 1_000_000, threads, cups * 1e9 / time);
+    }
+
+    /**
+     * Replays a recording and prints the report of the cups it finished
+     * @param args - replay [recording] [board number] [player order]
+     * @throws IOException - if a file cannot be read
+     */
+    private static void replay(String[] args) throws IOException {
+        String path = args.length > 1 ? args[1] : "dice.bin";
+        int boardNumber = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        String playerOrder = args.length > 3 ? args[3] : "ABC";
+
+        TransitionTable board = new TransitionTable(
+                new DenseBoard(new BoardGen(BOARD_FILE_NAME, boardNumber).getBoard()));
+        ArrayGameplay game = new ArrayGameplay(board, playerOrder);
+        SimulationStats stats = new SimulationStats(playerOrder);
+        long start = System.nanoTime();
+        long rolls;
+        try (RecordedDice dice = new RecordedDice(path)) {
+            while (true) {
+                game.reset();
+                long turns = playCup(game, dice);
+                if (!game.isCupOver()) {break;} //the recording ended in the middle of the cup
+                stats.addCup(game, turns);
+            }
+            rolls = dice.getPosition();
+        }
+        long time = System.nanoTime() - start;
+
+        stats.print(System.out);
+        System.out.printf("Replayed %d rolls in %d ms (%.0f rolls/s)\n",
+                rolls, time / 1_000_000, rolls * 1e9 / time);
+    }
+
+    /** Constructor
+     * @param board - the board
+     * @param playerOrder - the players, in order of play
+     *                    - pre: 3-10 unique capital letters
+     */
+    public Simulator(BoardView board, String playerOrder) {
+        this.board = board;
+        this.playerOrder = playerOrder;
+        this.arrayEngine = false;
+    }
+
+    /** Constructor
+     * @param board - the board, with precomputed moves
+     * @param playerOrder - the players, in order of play
+     *                    - pre: 3-10 unique capital letters
+     * @param arrayEngine - true to play with ArrayGameplay (same results, no objects per cup)
+     */
+    public Simulator(TransitionTable board, String playerOrder, boolean arrayEngine) {
+        this.board = board;
+        this.playerOrder = playerOrder;
+        this.arrayEngine = arrayEngine;
+    }
+
+    /**
+     * Plays the cups on a fork/join pool
+     * @param cups - how many cups to play
+     * @param seed - the simulation seed
+     * @param threads - how many threads play at the same time
+     * @return the totals of every cup
+     */
+    public SimulationStats run(long cups, long seed, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long chunks = (cups + CHUNK - 1) / CHUNK;
+            return pool.invoke(new ChunkTask(cups, seed, 0, chunks));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays one chunk of cups with its own random dice
+     * @param chunk - the chunk number
+     * @param cups - how many cups in the chunk
+     * @param seed - the simulation seed
+     * @return the totals of the chunk
+     */
+    SimulationStats playChunk(long chunk, int cups, long seed) {
+        RandomDice dice = new RandomDice(seed ^ (chunk * SEED_MIX));
+        SimulationStats stats = new SimulationStats(playerOrder);
+        if (arrayEngine) {
+            ArrayGameplay game = new ArrayGameplay((TransitionTable) board, playerOrder);
+            for (int i=0; i<cups; i++) {
+                game.reset();
+                long turns = playCup(game, dice);
+                stats.addCup(game, turns);
+            }
+            return stats;
+        }
+        for (int i=0; i<cups; i++) {
+            Gameplay game = new Gameplay(board, playerOrder);
+            long turns = playCup(game, dice);
+            stats.addCup(game, turns);
+        }
+        return stats;
+    }
+
+    /**
+     * Plays a cup until it is over (or until the dice run out)
+     * @param game - a new game
+     * @param dice - where the dice come from
+     * @return how many turns were played
+     */
+    static long playCup(Gameplay game, DiceSource dice) {
+        long turns = 0;
+        while (!game.isCupOver() && game.playNextTurn(dice)) {turns++;}
+        return turns;
+    }
+
+    /**
+     * Plays a cup until it is over (or until the dice run out), on the array engine
+     * @param game - a game at the start of a cup
+     * @param dice - where the dice come from
+     * @return how many turns were played
+     */
+    static long playCup(ArrayGameplay game, DiceSource dice) {
+        long turns = 0;
+        while (!game.isCupOver() && game.playNextTurn(dice)) {turns++;}
+        return turns;
+    }
+
+    /** CHUNKTASK CLASS
+     * Fork/join task that plays a range of chunks, splitting it in half until a single chunk is
+     * left
+     */
+    private class ChunkTask extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long cups; //total cups of the simulation
+        private final long seed;
+        private final long from; //first chunk (inclusive)
+        private final long to; //last chunk (exclusive)
+
+        ChunkTask(long cups, long seed, long from, long to) {
+            this.cups = cups;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= 1) { //a single chunk, or none (no cups to play)
+                int size = (int) Math.min(CHUNK, cups - from * CHUNK);
+                return playChunk(from, size, seed);
+            }
+            long middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(cups, seed, from, middle);
+            left.fork();
+            SimulationStats stats = new ChunkTask(cups, seed, middle, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/** SPARSEBOARD CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Board view for huge boards where only a small fraction of the tiles are special
+ * Bird tiles are computed from their position (every BoardGen.BIRD_MULT tiles) and the penalty
+ * and fall tiles are kept in a sorted index, so memory grows with the number of special tiles
+ * instead of the number of tiles
+ */
+
+import java.util.Arrays;
+
+public class SparseBoard implements BoardView {
+    //Instance variables
+    private final int tileNumber;
+    private final int[] positions; //indexes of the penalty and fall tiles, sorted
+    private final int[] types; //types[i] == type of the tile positions[i] (see BoardGen)
+
+    /** Constructor
+     * @param tileNumber - the number of tiles of the board
+     * @param positions - indexes of the penalty and fall tiles (tile N == index N-1)
+     *                  - pre: >=0 && <tileNumber
+     * @param types - type of each of those tiles (see BoardGen constants)
+     * @param count - how many of those tiles there are
+     * If a tile is listed more than once, the last entry is used (as when BoardGen fills an array)
+     */
+    public SparseBoard(int tileNumber, int[] positions, int[] types, int count) {
+        this.tileNumber = tileNumber;
+
+        //Sorts the entries by position (stable, so the order of repeated tiles is kept)
+        long[] entries = new long[count];
+        for (int i=0; i<count; i++) {entries[i] = (long) positions[i] << 32 | i;}
+        Arrays.sort(entries);
+
+        //Keeps the last entry of each position
+        int[] sortedPositions = new int[count];
+        int[] sortedTypes = new int[count];
+        int size = 0;
+        for (int i=0; i<count; i++) {
+            int position = (int) (entries[i] >>> 32);
+            int type = types[(int) entries[i]];
+            if (size > 0 && sortedPositions[size-1] == position) {sortedTypes[size-1] = type;}
+            else {sortedPositions[size] = position; sortedTypes[size] = type; size++;}
+        }
+        this.positions = Arrays.copyOf(sortedPositions, size);
+        this.types = Arrays.copyOf(sortedTypes, size);
+    }
+
+    //Methods
+    @Override
+    public int getTileNumber() {
+        return tileNumber;
+    }
+
+    @Override
+    public int getTile(int index) {
+        int i = Arrays.binarySearch(positions, index);
+        if (i >= 0) {return types[i];}
+        //Bird tiles: every BIRD_MULT tiles, except on the last tile (same rule as BoardGen)
+        if ((index+1) % BoardGen.BIRD_MULT == 0 && index < tileNumber-1) {return BoardGen.INT_BIRD;}
+        return 0;
+    }
+
+    /**
+     * @return how many penalty and fall tiles are stored
+     */
+    public int getSpecialTileNumber() {
+        return positions.length;
+    }
+}
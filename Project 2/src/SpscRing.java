@@ -0,0 +1,109 @@
+/** SPSCRING CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Bounded single-producer/single-consumer ring of preallocated slots (see ReplayPipeline)
+ * Slots are never handed over: the producer fills the slot it claimed and publishes it, the
+ * consumer reads the slot it took and releases it, so nothing is allocated per item
+ * The hand-off is lock-free: each side only writes its own counter (an ordered store, which makes
+ * the slot's contents visible before the counter) and keeps a cached copy of the other side's
+ * counter, only reading the real one when the cached copy says the ring is full (or empty)
+ * A side that has to wait spins briefly, then yields, then parks for short periods
+ * pre: exactly one thread produces and exactly one thread consumes
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class SpscRing<T> {
+    //Constants
+    private static final int SPINS = 64; //busy waits before yielding
+    private static final int YIELDS = 64; //yields before parking
+    private static final long PARK_NANOS = 20_000;
+
+    //Instance variables
+    private final T[] slots;
+    private final int mask; //capacity - 1
+    private final AtomicLong head; //next slot to consume (written by the consumer only)
+    private final AtomicLong tail; //next slot to publish (written by the producer only)
+    private long cachedHead; //producer's copy of head
+    private long cachedTail; //consumer's copy of tail
+
+    /** Constructor
+     * @param capacity - number of slots
+     *                 - pre: power of 2
+     * @param factory - creates each slot
+     */
+    @SuppressWarnings("unchecked")
+    public SpscRing(int capacity, Supplier<T> factory) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of 2");
+        }
+        slots = (T[]) new Object[capacity];
+        for (int i=0; i<capacity; i++) {slots[i] = factory.get();}
+        mask = capacity - 1;
+        head = new AtomicLong();
+        tail = new AtomicLong();
+    }
+
+    //Methods
+    /**
+     * Producer: waits for a free slot
+     * @return the slot to fill, published by publish()
+     */
+    public T claim() {
+        long position = tail.get();
+        for (int attempt=0; position - cachedHead > mask; attempt++) { //full, as far as we know
+            cachedHead = head.get();
+            if (position - cachedHead > mask) {await(attempt);}
+        }
+        return slots[(int) position & mask];
+    }
+
+    /**
+     * Producer: hands the claimed slot to the consumer
+     */
+    public void publish() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    /**
+     * Consumer: waits for a published slot
+     * @return the oldest published slot, given back by release()
+     */
+    public T take() {
+        T slot;
+        for (int attempt=0; (slot = poll()) == null; attempt++) {await(attempt);}
+        return slot;
+    }
+
+    /**
+     * Consumer: takes a published slot without waiting
+     * @return the oldest published slot (given back by release()), null if there is none
+     */
+    public T poll() {
+        long position = head.get();
+        if (position == cachedTail) {
+            cachedTail = tail.get();
+            if (position == cachedTail) {return null;}
+        }
+        return slots[(int) position & mask];
+    }
+
+    /**
+     * Consumer: gives the taken slot back to the producer
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    /**
+     * Waits a little, longer the more attempts were made
+     * @param attempt - number of attempts made so far
+     */
+    private static void await(int attempt) {
+        if (attempt < SPINS) {Thread.onSpinWait();}
+        else if (attempt < SPINS + YIELDS) {Thread.yield();}
+        else {LockSupport.parkNanos(PARK_NANOS);}
+    }
+}
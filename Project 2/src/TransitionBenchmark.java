@@ -0,0 +1,59 @@
+/** TRANSITIONBENCHMARK CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Compares the simulator's speed on plain boards (moves computed every turn), on boards
+ * with precomputed moves (TransitionTable) and with the array engine (ArrayGameplay),
+ * for every board of the boards file
+ * Usage: TransitionBenchmark [player order] [cups per run] [runs]
+ */
+
+import java.io.IOException;
+
+public class TransitionBenchmark {
+    //Constants
+    private static final String BOARD_FILE_NAME = "boards.txt";
+    private static final long SEED = 1;
+
+    /** MAIN
+     * @throws IOException - if the boards file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        String playerOrder = args.length > 0 ? args[0] : "ABCD";
+        long cups = args.length > 1 ? Long.parseLong(args[1]) : 500_000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        BoardIndex index = BoardIndex.build(BOARD_FILE_NAME);
+        for (int boardNumber=1; boardNumber<=index.size(); boardNumber++) {
+            BoardView plain = new DenseBoard(new BoardGen(index, boardNumber).getBoard());
+            TransitionTable table = new TransitionTable(plain);
+            Simulator[] simulators = {
+                    new Simulator(plain, playerOrder),
+                    new Simulator(table, playerOrder, false),
+                    new Simulator(table, playerOrder, true)};
+
+            //Alternates the versions; the first run of each only warms up the JIT
+            double[] rates = new double[simulators.length];
+            for (int run=0; run<=runs; run++) {
+                for (int i=0; i<simulators.length; i++) {
+                    double rate = cupsPerSecond(simulators[i], cups);
+                    if (run > 0) {rates[i] = Math.max(rates[i], rate);}
+                }
+            }
+            System.out.printf("Board %d (%d tiles): plain %.0f cups/s; table %.0f cups/s (%.2fx); "
+                    + "array engine %.0f cups/s (%.2fx)\n", boardNumber, plain.getTileNumber(),
+                    rates[0], rates[1], rates[1] / rates[0], rates[2], rates[2] / rates[0]);
+        }
+    }
+
+    /**
+     * Runs a single-threaded simulation
+     * @param simulator - the simulator
+     * @param cups - how many cups
+     * @return cups per second
+     */
+    private static double cupsPerSecond(Simulator simulator, long cups) {
+        long start = System.nanoTime();
+        simulator.run(cups, SEED, 1);
+        return cups * 1e9 / (System.nanoTime() - start);
+    }
+}
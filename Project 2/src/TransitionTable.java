@@ -0,0 +1,114 @@
+/** TRANSITIONTABLE CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Board view with every move precomputed
+ * On a fixed board, the tile where a player lands only depends on their position and on the
+ * sum of the dice, so the outcome of each (position, dice sum) pair is computed once: the landing
+ * tile and the effect to apply (none, a penalty or a death tile) are packed in a single int
+ * Games on a TransitionTable move players with a single array read (see Gameplay)
+ * Uses 11 ints per tile, so it's meant for boards shared by many games
+ */
+
+public class TransitionTable implements BoardView {
+    //Constants
+    public static final int MIN_DICE = 2; //lowest dice sum
+    public static final int MAX_DICE = 12; //highest dice sum
+    private static final int SUMS = MAX_DICE - MIN_DICE + 1;
+    private static final int EFFECT_BITS = 8;
+    private static final int EFFECT_MASK = (1 << EFFECT_BITS) - 1;
+    //Effects: 0 == none, 1..MAX_PENALTY == penalty turns, EFFECT_DEATH == death tile
+    public static final int EFFECT_NONE = 0;
+    public static final int EFFECT_DEATH = EFFECT_MASK;
+    private static final int MAX_PENALTY = EFFECT_MASK - 1;
+
+    //Instance variables
+    private final BoardView board;
+    private final int[] moves; //moves[position*SUMS + sum-MIN_DICE] == landing << 8 | effect
+
+    /** Constructor
+     * Computes every move of the board
+     * @param board - the board
+     *              - pre: board must be valid according to the specifications in BoardGen
+     */
+    public TransitionTable(BoardView board) {
+        this.board = board;
+        int lastTile = board.getTileNumber()-1;
+        moves = new int[board.getTileNumber() * SUMS];
+        for (int position=0; position<=lastTile; position++) {
+            for (int sum=MIN_DICE; sum<=MAX_DICE; sum++) {
+                moves[position*SUMS + sum-MIN_DICE] = computeMove(position, sum, lastTile);
+            }
+        }
+    }
+
+    /**
+     * Computes a move, following the rules of Gameplay.nextValidPosition
+     * @param position - the player's position
+     * @param diceResult - sum of the dice
+     * @param lastTile - index of the last tile
+     * @return the landing tile and effect, packed
+     */
+    private int computeMove(int position, int diceResult, int lastTile) {
+        int nextPosition = Math.min(position + diceResult, lastTile); //no out-of-bounds
+        int type = board.getTile(nextPosition);
+        if (type < 0) { //penalty tile
+            if (-type > MAX_PENALTY) {throw new IllegalArgumentException("Penalty too long");}
+            return pack(nextPosition, -type);
+        }
+        switch (type) {
+            case BoardGen.INT_BIRD: //bird tile
+                return pack(Math.min(nextPosition+Gameplay.BIRD_JUMP, lastTile), EFFECT_NONE);
+            case BoardGen.INT_FALL_CRAB: //crab tile
+                return pack(Math.max(position - diceResult, 0), EFFECT_NONE);
+            case BoardGen.INT_FALL_HELL: //hell tile
+                return pack(0, EFFECT_NONE);
+            case BoardGen.INT_FALL_DEATH: //death tile
+                return pack(nextPosition, EFFECT_DEATH);
+            default:
+                return pack(nextPosition, EFFECT_NONE);
+        }
+    }
+
+    /**
+     * @return a landing tile and an effect packed in an int
+     */
+    private static int pack(int landing, int effect) {
+        return landing << EFFECT_BITS | effect;
+    }
+
+    /**
+     * @param position - the player's position
+     * @param diceResult - sum of the dice
+     *                   - pre: >=MIN_DICE && <=MAX_DICE
+     * @return the packed move (see getLanding and getEffect)
+     */
+    public int getMove(int position, int diceResult) {
+        return moves[position*SUMS + diceResult-MIN_DICE];
+    }
+
+    /**
+     * @param move - a packed move
+     * @return the tile where the player ends the move
+     */
+    public static int getLanding(int move) {
+        return move >>> EFFECT_BITS;
+    }
+
+    /**
+     * @param move - a packed move
+     * @return EFFECT_NONE, EFFECT_DEATH or the number of penalty turns
+     */
+    public static int getEffect(int move) {
+        return move & EFFECT_MASK;
+    }
+
+    @Override
+    public int getTileNumber() {
+        return board.getTileNumber();
+    }
+
+    @Override
+    public int getTile(int index) {
+        return board.getTile(index);
+    }
+}
@@ -0,0 +1,214 @@
+/** TURNJOURNAL CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Makes a game survive crashes: every processed turn is appended to a journal and the full game
+ * state is saved in a snapshot every few turns
+ * Recovering a game loads the latest snapshot and replays only the turns journaled after it, so
+ * recovery time depends on the snapshot interval, not on how long the cup has been going on
+ *
+ * Files (big-endian), next to the given base path:
+ *   base.snapshot - MAGIC_SNAPSHOT (int), VERSION (int), game identity (long), turns (long),
+ *                   game state (see Gameplay.writeState)
+ *   base.journal  - MAGIC_JOURNAL (int), VERSION (int), game identity (long),
+ *                   turns before the first entry (long), then one byte per turn:
+ *                   (diceLow-1)*6 + (diceHigh-1)
+ * A new snapshot replaces the old one atomically and then starts an empty journal, so a crash at
+ * any point leaves a snapshot and a journal that can be recovered together
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+public class TurnJournal implements Closeable {
+    //Constants
+    private static final int MAGIC_SNAPSHOT = 0x474C5253; //"GLRS"
+    private static final int MAGIC_JOURNAL = 0x474C524A; //"GLRJ"
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int DICE_FACES = 6;
+
+    //Instance variables
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final long identity; //board and players of the journaled game
+    private final int snapshotInterval; //turns between snapshots
+    private FileOutputStream journal; //open journal, entries are appended unbuffered
+    private long turns; //turns processed since the cup started
+    private long snapshotTurns; //turns included in the latest snapshot
+    private long replayedTurns; //turns replayed from the journal when the game was recovered
+
+    /** Constructor
+     * @param basePath - path of the snapshot and journal, without extension
+     * @param identity - identity of the journaled game
+     * @param snapshotInterval - turns between snapshots
+     */
+    private TurnJournal(String basePath, long identity, int snapshotInterval) {
+        this.snapshotPath = Paths.get(basePath + SNAPSHOT_EXTENSION);
+        this.journalPath = Paths.get(basePath + JOURNAL_EXTENSION);
+        this.identity = identity;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Starts journaling a game, recovering its saved state first if there is one
+     * @param basePath - path of the snapshot and journal, without extension
+     * @param game - the game, just created
+     * @param snapshotInterval - turns between snapshots
+     *                         - pre: >0
+     * @return the journal, already attached to the game (see Gameplay.setJournal)
+     * @throws IOException - if the files can't be used or belong to another game
+     */
+    public static TurnJournal open(String basePath, Gameplay game, int snapshotInterval)
+            throws IOException {
+        TurnJournal journal = new TurnJournal(basePath, identity(game), snapshotInterval);
+        journal.recover(game);
+        journal.snapshot(game); //starts with an empty journal
+        game.setJournal(journal);
+        return journal;
+    }
+
+    //Methods
+    /**
+     * @param game - a game
+     * @return a hash of the board size and the players' ids, in order of play
+     */
+    private static long identity(Gameplay game) {
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ game.getTileNumber()) * 0x100000001B3L;
+        hash = (hash ^ game.getSize()) * 0x100000001B3L;
+        for (int i=0; i<game.getSize(); i++) {
+            hash = (hash ^ game.getPlayerId(i).hashCode()) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Restores the saved state of the game: latest snapshot, then the journal after it
+     * @param game - the game, just created
+     */
+    private void recover(Gameplay game) throws IOException {
+        if (Files.exists(snapshotPath)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+                checkHeader(in, MAGIC_SNAPSHOT);
+                snapshotTurns = in.readLong();
+                game.readState(in);
+            }
+        }
+        turns = snapshotTurns;
+
+        if (Files.exists(journalPath)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(journalPath)))) {
+                checkHeader(in, MAGIC_JOURNAL);
+                long entryTurns = in.readLong(); //turns before the next entry
+                if (entryTurns > snapshotTurns) {throw new IOException("Snapshot is missing");}
+                int entry;
+                while ((entry = in.read()) != -1) {
+                    int diceLow = entry / DICE_FACES + 1, diceHigh = entry % DICE_FACES + 1;
+                    if (diceLow > diceHigh) {break;} //damaged tail, nothing valid after it
+                    if (entryTurns++ < snapshotTurns) {continue;} //already in the snapshot
+                    game.processNextTurn(diceLow, diceHigh);
+                    turns++;
+                    replayedTurns++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads and checks the header shared by both files
+     * @param in - the file
+     * @param magic - the expected magic number
+     * @throws IOException - if the file is not a journal file or belongs to another game
+     */
+    private void checkHeader(DataInputStream in, int magic) throws IOException {
+        if (in.readInt() != magic || in.readInt() != VERSION) {
+            throw new IOException("Not a journal file of this version");
+        }
+        if (in.readLong() != identity) {
+            throw new IOException("Journal files belong to another game");
+        }
+    }
+
+    /**
+     * Records a processed turn (called by Gameplay.processNextTurn)
+     * @param game - the game, after the turn
+     * @param diceLow - lowest dice value of the turn
+     * @param diceHigh - highest dice value of the turn
+     */
+    public void append(Gameplay game, int diceLow, int diceHigh) {
+        try {
+            journal.write((diceLow-1) * DICE_FACES + (diceHigh-1));
+            turns++;
+            if (turns - snapshotTurns >= snapshotInterval) {snapshot(game);}
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves a snapshot of the game and starts an empty journal after it
+     * Both files are written next to the old ones and then moved over them
+     * @param game - the game
+     */
+    private void snapshot(Gameplay game) throws IOException {
+        write(snapshotPath, MAGIC_SNAPSHOT, out -> game.writeState(out));
+        snapshotTurns = turns;
+        if (journal != null) {journal.close();}
+        write(journalPath, MAGIC_JOURNAL, out -> {});
+        journal = new FileOutputStream(journalPath.toFile(), true);
+    }
+
+    /** CONTENT INTERFACE
+     * Writes the content of a file after its header
+     */
+    private interface Content {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes a file with the header and the turn count, then atomically replaces the old file
+     * @param path - the file
+     * @param magic - the magic number of the file
+     * @param content - what comes after the header
+     */
+    private void write(Path path, int magic, Content content) throws IOException {
+        Path temp = Paths.get(path + TEMP_EXTENSION);
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(magic);
+            out.writeInt(VERSION);
+            out.writeLong(identity);
+            out.writeLong(turns);
+            content.write(out);
+            out.flush();
+            file.getFD().sync(); //the new file must be complete before it replaces the old one
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return turns processed since the cup started
+     */
+    public long getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return turns replayed from the journal when the game was recovered
+     */
+    public long getReplayedTurns() {
+        return replayedTurns;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {journal.close();}
+    }
+}
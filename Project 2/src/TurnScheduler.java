@@ -0,0 +1,85 @@
+/** TURNSCHEDULER CLASS
+ * @author Afonso Brás Sousa
+ * @author Alexandre Cristóvão
+ * Decides who plays next, in play order, skipping dead and penalized players
+ * Alive players are kept in a circular list (by play order), so dead players are never visited;
+ * when every alive player is penalized, whole rounds of penalties are lowered at once instead of
+ * going around the table one turn at a time
+ */
+
+public class TurnScheduler {
+    //Instance variables
+    private final Player[] players; //players array in order of play
+    private final int[] next; //next[i] == next alive player after player i
+    private final int[] previous; //previous[i] == previous alive player before player i
+    private int first; //alive player with the lowest play order
+    private int aliveCount;
+
+    /** Constructor
+     * @param players - players array in order of play
+     *                - pre: every player is alive
+     */
+    public TurnScheduler(Player[] players) {
+        this.players = players;
+        int size = players.length;
+        next = new int[size];
+        previous = new int[size];
+        for (int i=0; i<size; i++) {
+            next[i] = (i+1) % size;
+            previous[i] = (i-1+size) % size;
+        }
+        first = 0;
+        aliveCount = size;
+    }
+
+    //Methods
+    /**
+     * @return the alive player with the lowest play order (who starts each game)
+     */
+    public int first() {
+        return first;
+    }
+
+    /**
+     * Removes a dead player from the turn order
+     * Their own link is kept, so the turn can still be passed on from them in the same turn
+     * @param player - index of the dead player
+     *               - pre: player was alive && at least one other player is alive
+     */
+    public void remove(int player) {
+        next[previous[player]] = next[player];
+        previous[next[player]] = previous[player];
+        if (player == first) {first = next[player];}
+        aliveCount--;
+    }
+
+    /**
+     * Finds who plays after the current player
+     * Every penalized player passed over loses 1 penalty turn, exactly as if the turn had been
+     * passed around the table one player at a time
+     * @param current - index of the player who just played (may have just died)
+     * @return index of the next player
+     */
+    public int next(int current) {
+        int player = next[current];
+        for (int visited=0; visited<aliveCount; visited++) {
+            if (players[player].canRollDice()) {return player;}
+            players[player].lowerPenalty();
+            player = next[player];
+        }
+
+        //Everyone was penalized: skips the rounds in which nobody could play
+        int rounds = Integer.MAX_VALUE;
+        for (int i=0; i<aliveCount; i++, player = next[player]) {
+            rounds = Math.min(rounds, players[player].getPenalty());
+        }
+        for (int i=0; i<aliveCount; i++, player = next[player]) {
+            players[player].lowerPenalty(rounds);
+        }
+        while (!players[player].canRollDice()) { //someone can play within this round
+            players[player].lowerPenalty();
+            player = next[player];
+        }
+        return player;
+    }
+}